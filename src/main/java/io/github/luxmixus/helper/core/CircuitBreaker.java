@@ -0,0 +1,95 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按主机区分的熔断器
+ * <p>
+ * 某主机连续失败(连接异常或5xx/429响应)达到 failureThreshold 次后熔断, 熔断期间的请求直接失败而不占用连接和线程;
+ * 经过 openTimeout 毫秒后放行一个探测请求, 成功则恢复, 失败则继续熔断
+ *
+ * @author luxmixus
+ */
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openTimeout;
+    private final Map<String, HostState> states = new ConcurrentHashMap<>();
+
+    public CircuitBreaker() {
+        this(5, 30000);
+    }
+
+    /**
+     * 创建熔断器
+     *
+     * @param failureThreshold 触发熔断的连续失败次数
+     * @param openTimeout      熔断持续时间, 毫秒
+     */
+    public CircuitBreaker(int failureThreshold, long openTimeout) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = openTimeout;
+    }
+
+    /**
+     * 指定主机当前是否处于熔断状态
+     *
+     * @param host 主机标识, 见 {@link PooledHttpTransport#hostKey}
+     * @return boolean
+     */
+    public boolean isOpen(String host) {
+        HostState state = states.get(host);
+        return state != null && state.failures >= failureThreshold
+                && System.currentTimeMillis() - state.openedAt < openTimeout;
+    }
+
+    /**
+     * 请求前检查, 熔断中时抛出 {@link IllegalStateException}
+     *
+     * @param host 主机标识
+     */
+    void acquire(String host) {
+        HostState state = states.get(host);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.failures < failureThreshold) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now - state.openedAt < openTimeout) {
+                throw new IllegalStateException("circuit breaker is open, host: " + host);
+            }
+            // 半开: 放行一个探测请求, 探测结果返回前其余请求仍直接失败
+            state.openedAt = now;
+        }
+    }
+
+    void onSuccess(String host) {
+        HostState state = states.get(host);
+        if (state != null) {
+            synchronized (state) {
+                state.failures = 0;
+            }
+        }
+    }
+
+    void onFailure(String host) {
+        HostState state = states.computeIfAbsent(host, k -> new HostState());
+        synchronized (state) {
+            if (++state.failures >= failureThreshold) {
+                state.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private static class HostState {
+        private volatile int failures;
+        private volatile long openedAt;
+    }
+
+}
@@ -0,0 +1,83 @@
+package io.github.luxmixus.helper.core;
+
+import lombok.SneakyThrows;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预先匹配好属性的复制器, 不可变且线程安全
+ * <p>
+ * 创建时按名称匹配来源类与目标类的属性并检查类型兼容性, 复制时仅遍历匹配结果.
+ * 同类型的基本类型属性使用组合句柄直接复制, 不经过装箱; 其余属性来源值为null时不复制
+ *
+ * @param <S> 来源类型
+ * @param <T> 目标类型
+ * @author luxmixus
+ */
+public final class Copier<S, T> {
+    private final Class<S> sourceClass;
+    private final Class<T> targetClass;
+    private final MethodHandle[] primitives;
+    private final FieldAccessor[] sourceAccessors;
+    private final FieldAccessor[] targetAccessors;
+
+    Copier(Class<S> sourceClass, Class<T> targetClass) {
+        this.sourceClass = sourceClass;
+        this.targetClass = targetClass;
+        Map<String, FieldAccessor> targetMap = ReflectHelper.accessors(targetClass);
+        List<MethodHandle> primitiveList = new ArrayList<>();
+        List<FieldAccessor> sourceList = new ArrayList<>();
+        List<FieldAccessor> targetList = new ArrayList<>();
+        for (FieldAccessor source : ReflectHelper.accessors(sourceClass).values()) {
+            FieldAccessor target = targetMap.get(source.getName());
+            if (target == null || !target.getType().isAssignableFrom(source.getType())) {
+                continue;
+            }
+            if (source.getType().isPrimitive()) {
+                primitiveList.add(target.copyFrom(source));
+            } else {
+                sourceList.add(source);
+                targetList.add(target);
+            }
+        }
+        this.primitives = primitiveList.toArray(new MethodHandle[0]);
+        this.sourceAccessors = sourceList.toArray(new FieldAccessor[0]);
+        this.targetAccessors = targetList.toArray(new FieldAccessor[0]);
+    }
+
+    public Class<S> getSourceClass() {
+        return sourceClass;
+    }
+
+    public Class<T> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * 复制属性
+     *
+     * @param source 来源
+     * @param target 目标
+     * @return 目标对象
+     */
+    @SneakyThrows
+    public T copy(S source, T target) {
+        if (source == null || target == null) {
+            return target;
+        }
+        for (MethodHandle primitive : primitives) {
+            primitive.invokeExact((Object) target, (Object) source);
+        }
+        for (int i = 0; i < sourceAccessors.length; i++) {
+            Object o = sourceAccessors[i].get(source);
+            if (o != null) {
+                targetAccessors[i].set(target, o);
+            }
+        }
+        return target;
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.github.luxmixus.helper.core;
+
+import lombok.SneakyThrows;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * 基于 {@link MethodHandle} 的属性访问器
+ * <p>
+ * 在创建时完成访问检查, 读写时不再经过反射校验; 保留原始类型的句柄, 同类型基本类型属性之间可组合出不装箱的复制句柄
+ *
+ * @author luxmixus
+ */
+public final class FieldAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private final Field field;
+    private final Class<?> boxedType;
+    private final MethodHandle rawGetter;
+    private final MethodHandle rawSetter;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    @SneakyThrows
+    FieldAccessor(Field field) {
+        this.field = field;
+        this.boxedType = MethodType.methodType(field.getType()).wrap().returnType();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.rawGetter = lookup.unreflectGetter(field);
+        this.rawSetter = lookup.unreflectSetter(field);
+        this.getter = rawGetter.asType(GETTER_TYPE);
+        this.setter = rawSetter.asType(SETTER_TYPE);
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    /**
+     * 读取属性值, 基本类型会被装箱
+     *
+     * @param target 对象
+     * @return 属性值
+     */
+    @SneakyThrows
+    public Object get(Object target) {
+        return (Object) getter.invokeExact(target);
+    }
+
+    /**
+     * 写入属性值, 基本类型属性写入null时抛出 {@link NullPointerException}
+     *
+     * @param target 对象
+     * @param value  属性值
+     */
+    @SneakyThrows
+    public void set(Object target, Object value) {
+        setter.invokeExact(target, value);
+    }
+
+    /**
+     * 值能否写入本属性, 基本类型属性接受对应的包装类型
+     *
+     * @param value 值, 不为null
+     * @return boolean
+     */
+    boolean accepts(Object value) {
+        return boxedType.isInstance(value);
+    }
+
+    /**
+     * 组合从 source 属性读取并写入本属性的句柄, 类型为 (Object target, Object source)void, 值不经过装箱
+     *
+     * @param source 来源属性
+     * @return 复制句柄
+     */
+    MethodHandle copyFrom(FieldAccessor source) {
+        return MethodHandles.filterArguments(rawSetter, 1, source.rawGetter).asType(SETTER_TYPE);
+    }
+
+}
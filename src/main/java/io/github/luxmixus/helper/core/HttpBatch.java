@@ -0,0 +1,291 @@
+package io.github.luxmixus.helper.core;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * http批量请求调度器
+ * <p>
+ * 以全局及每个主机的并发上限执行一批 {@link HttpHelper} 请求, 并按完成顺序返回带耗时的结果.
+ * 请求完成时在回调中调度下一个可执行的请求, 不额外占用等待线程
+ *
+ * @author luxmixus
+ */
+public class HttpBatch {
+    private final List<HttpHelper> requests;
+    private int maxConcurrency = 64;
+    private int maxConcurrencyPerHost = 8;
+    private Executor executor;
+
+    protected HttpBatch(Collection<? extends HttpHelper> requests) {
+        this.requests = new ArrayList<>(requests);
+    }
+
+    public static HttpBatch of(Collection<? extends HttpHelper> requests) {
+        return new HttpBatch(requests);
+    }
+
+    public HttpBatch maxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public HttpBatch maxConcurrencyPerHost(int maxConcurrencyPerHost) {
+        if (maxConcurrencyPerHost <= 0) {
+            throw new IllegalArgumentException("maxConcurrencyPerHost must be positive");
+        }
+        this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+        return this;
+    }
+
+    /**
+     * 执行请求的线程池, 未指定时使用各请求自身的异步线程池
+     *
+     * @param executor 线程池
+     * @return this
+     */
+    public HttpBatch executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 开始执行, 结果按完成顺序返回
+     *
+     * @param handler 请求处理方式, 如 {@code HttpHelper::responseString}
+     * @return 结果迭代器, 迭代时阻塞等待下一个完成的请求
+     */
+    public <V> Iterator<Result<V>> execute(Function<? super HttpHelper, ? extends V> handler) {
+        return new Dispatcher<V>(handler).start();
+    }
+
+    /**
+     * 开始执行, 结果按完成顺序返回
+     *
+     * @param handler 请求处理方式, 如 {@code HttpHelper::responseString}
+     * @return 结果流
+     */
+    public <V> Stream<Result<V>> stream(Function<? super HttpHelper, ? extends V> handler) {
+        return StreamSupport.stream(Spliterators.spliterator(this.<V>execute(handler), requests.size(),
+                Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * 开始执行并等待全部完成
+     *
+     * @param handler 请求处理方式, 如 {@code HttpHelper::responseString}
+     * @return 结果列表, 按完成顺序排列
+     */
+    public <V> List<Result<V>> executeAll(Function<? super HttpHelper, ? extends V> handler) {
+        List<Result<V>> results = new ArrayList<>(requests.size());
+        this.<V>execute(handler).forEachRemaining(results::add);
+        return results;
+    }
+
+    /**
+     * 单个请求的执行结果
+     */
+    public static class Result<V> {
+        private final int index;
+        private final HttpHelper request;
+        private final V value;
+        private final Throwable error;
+        private final long startNanos;
+        private final long elapsedNanos;
+
+        Result(int index, HttpHelper request, V value, Throwable error, long startNanos, long elapsedNanos) {
+            this.index = index;
+            this.request = request;
+            this.value = value;
+            this.error = error;
+            this.startNanos = startNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 请求在批次中的下标
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public HttpHelper getRequest() {
+            return request;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * 开始执行时间, {@link System#nanoTime()}
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * 执行耗时, 纳秒
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    private class Dispatcher<V> implements Iterator<Result<V>> {
+        private final Function<? super HttpHelper, ? extends V> handler;
+        private final BlockingQueue<Result<V>> completed = new LinkedBlockingQueue<>();
+        private final Map<String, ArrayDeque<Integer>> pending = new LinkedHashMap<>();
+        private final Map<String, Integer> running = new LinkedHashMap<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private int runningTotal;
+        private int returned;
+
+        Dispatcher(Function<? super HttpHelper, ? extends V> handler) {
+            this.handler = handler;
+        }
+
+        Dispatcher<V> start() {
+            for (int i = 0; i < requests.size(); i++) {
+                String host;
+                try {
+                    host = PooledHttpTransport.hostKey(new URL(requests.get(i).url));
+                } catch (MalformedURLException e) {
+                    completed.add(new Result<>(i, requests.get(i), null, e, System.nanoTime(), 0));
+                    continue;
+                }
+                pending.computeIfAbsent(host, k -> new ArrayDeque<>()).add(i);
+            }
+            schedule();
+            return this;
+        }
+
+        /**
+         * 调度待执行的请求; 已有线程在调度时仅记录一次调度需求, 由该线程循环处理,
+         * 线程池拒绝或同步执行任务时不会递归调用
+         */
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                dispatch();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * 按主机轮询启动请求, 直到达到并发上限
+         */
+        private void dispatch() {
+            List<String> hosts = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            synchronized (this) {
+                boolean progress = true;
+                while (progress && runningTotal < maxConcurrency) {
+                    progress = false;
+                    Iterator<Map.Entry<String, ArrayDeque<Integer>>> it = pending.entrySet().iterator();
+                    while (it.hasNext() && runningTotal < maxConcurrency) {
+                        Map.Entry<String, ArrayDeque<Integer>> entry = it.next();
+                        int hostRunning = running.getOrDefault(entry.getKey(), 0);
+                        if (hostRunning >= maxConcurrencyPerHost) {
+                            continue;
+                        }
+                        hosts.add(entry.getKey());
+                        indexes.add(entry.getValue().poll());
+                        running.put(entry.getKey(), hostRunning + 1);
+                        runningTotal++;
+                        progress = true;
+                        if (entry.getValue().isEmpty()) {
+                            it.remove();
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                launch(hosts.get(i), indexes.get(i));
+            }
+        }
+
+        private void launch(String host, int index) {
+            HttpHelper request = requests.get(index);
+            Executor target = executor == null ? request.executor : executor;
+            try {
+                target.execute(() -> run(host, index, request));
+            } catch (RuntimeException e) {
+                complete(host, new Result<>(index, request, null, e, System.nanoTime(), 0));
+            }
+        }
+
+        private void run(String host, int index, HttpHelper request) {
+            long start = System.nanoTime();
+            V value = null;
+            Throwable error = null;
+            try {
+                value = handler.apply(request);
+            } catch (Throwable e) {
+                error = e;
+            }
+            complete(host, new Result<>(index, request, value, error, start, System.nanoTime() - start));
+        }
+
+        private void complete(String host, Result<V> result) {
+            synchronized (this) {
+                running.merge(host, -1, Integer::sum);
+                runningTotal--;
+            }
+            completed.add(result);
+            schedule();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return returned < requests.size();
+        }
+
+        @Override
+        public Result<V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Result<V> result = completed.take();
+                returned++;
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for batch result", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,602 @@
+package io.github.luxmixus.helper.core;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * http响应缓存
+ * <p>
+ * 仅缓存无请求体的GET请求的200响应, 遵循 Cache-Control(no-store/no-cache/max-age) 及 Expires,
+ * 过期后携带 ETag/Last-Modified 条件请求重新验证, 304 时直接复用缓存内容.
+ * 内存层按字节数限制大小并按最近最少使用淘汰, 可选的磁盘层按文件修改时间淘汰.
+ * 同一地址的并发未命中请求会合并为一次上游请求
+ * <p>
+ * 缓存按地址及 Accept/Accept-Encoding 区分, 并记录响应 Vary 指定的请求头, 请求头不一致时视为未命中.
+ * 携带 Authorization/Proxy-Authorization/Cookie 或 Cache-Control: no-store 的请求不使用缓存,
+ * 请求 Cache-Control 的 no-cache 及 max-age 要求重新验证过旧的缓存; Cache-Control: private 及 Vary: * 的响应不缓存,
+ * 仅请求头完全相同的并发请求会被合并
+ *
+ * @author luxmixus
+ */
+@Slf4j
+public class HttpCache {
+    private static final int DISK_MAGIC = 0x48434533;
+    private static final String[] CREDENTIAL_HEADERS = {"Authorization", "Proxy-Authorization", "Cookie"};
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, .75f, true);
+    private final Map<String, CompletableFuture<Response>> loading = new ConcurrentHashMap<>();
+    private final Object diskLock = new Object();
+    private long memoryBytes;
+    private long diskBytes;
+
+    /**
+     * 创建仅使用内存的响应缓存
+     *
+     * @param maxMemoryBytes 内存缓存最大字节数
+     */
+    public HttpCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * 创建使用内存及磁盘的响应缓存
+     *
+     * @param maxMemoryBytes 内存缓存最大字节数
+     * @param directory      磁盘缓存目录, 为null时不使用磁盘缓存
+     * @param maxDiskBytes   磁盘缓存最大字节数
+     */
+    @SneakyThrows
+    public HttpCache(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            for (Path file : cacheFiles()) {
+                diskBytes += Files.size(file);
+            }
+        }
+    }
+
+    /**
+     * 移除指定地址的缓存, 包括按请求头区分的全部版本
+     *
+     * @param url 完整请求地址(含路径参数)
+     */
+    public void invalidate(String url) {
+        String prefix = url + '\n';
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (e.getKey().startsWith(prefix)) {
+                    memoryBytes -= e.getValue().weight();
+                    it.remove();
+                }
+            }
+        }
+        if (directory != null) {
+            deleteDisk(diskFile(url));
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        if (directory != null) {
+            for (Path file : cacheFiles()) {
+                deleteDisk(file);
+            }
+        }
+    }
+
+    boolean accepts(HttpHelper request) {
+        if (!"GET".equals(request.method) || request.body != null || request.bodyWriter != null
+                || !request.formParams.isEmpty()) {
+            return false;
+        }
+        // 携带身份信息的响应可能因用户而异, 不缓存也不合并
+        for (String name : CREDENTIAL_HEADERS) {
+            if (request.hasHeader(name)) {
+                return false;
+            }
+        }
+        String cacheControl = request.headerValue("Cache-Control");
+        return cacheControl == null || !hasDirective(cacheControl, "no-store");
+    }
+
+    @SneakyThrows
+    InputStream fetch(HttpHelper request) {
+        String key = cacheKey(request);
+        Entry entry = lookup(key);
+        if (entry != null && !entry.matches(request)) {
+            entry = null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.isFresh(now) && now - entry.dateAt < requestMaxAge(request)) {
+            request.markExecuted();
+            request.responseCode = entry.status;
+            return new ByteArrayInputStream(entry.body);
+        }
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        String loadingKey = loadingKey(key, request);
+        CompletableFuture<Response> existing = loading.putIfAbsent(loadingKey, future);
+        if (existing != null) {
+            // 合并并发的未命中请求, 复用首个请求的结果
+            request.markExecuted();
+            Response response;
+            try {
+                response = existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+            request.responseCode = response.status;
+            return new ByteArrayInputStream(response.body);
+        }
+        try {
+            Response response = load(request, key, entry);
+            future.complete(response);
+            return new ByteArrayInputStream(response.body);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(loadingKey, future);
+        }
+    }
+
+    /**
+     * 缓存键, 由请求地址及 Accept/Accept-Encoding 组成, 以换行分隔
+     */
+    private static String cacheKey(HttpHelper request) {
+        String accept = requestHeader(request, "Accept");
+        String encoding = requestHeader(request, "Accept-Encoding");
+        return request.requestUrl() + '\n' + (accept == null ? "" : accept) + '\n' + (encoding == null ? "" : encoding);
+    }
+
+    /**
+     * 合并请求的键, 在缓存键的基础上包含全部请求头, 仅合并请求头完全相同的请求
+     */
+    private static String loadingKey(String key, HttpHelper request) {
+        if (request.header.isEmpty()) {
+            return key;
+        }
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.header);
+        StringBuilder sb = new StringBuilder(key);
+        headers.forEach((name, value) -> sb.append('\n').append(name).append(':').append(value));
+        return sb.toString();
+    }
+
+    /**
+     * 请求 Cache-Control 允许使用的缓存最大存在时长, 毫秒; no-cache 及 Pragma: no-cache 时为0, 即必须重新验证
+     */
+    private static long requestMaxAge(HttpHelper request) {
+        String cacheControl = request.headerValue("Cache-Control");
+        if (cacheControl == null) {
+            return "no-cache".equalsIgnoreCase(request.headerValue("Pragma")) ? 0 : Long.MAX_VALUE;
+        }
+        long maxAge = Long.MAX_VALUE;
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase(Locale.ROOT);
+            if ("no-cache".equals(d)) {
+                return 0;
+            }
+            if (d.startsWith("max-age=")) {
+                long seconds = parseSeconds(d.substring(8));
+                if (seconds >= 0) {
+                    maxAge = Math.min(maxAge, seconds * 1000);
+                }
+            }
+        }
+        return maxAge;
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        for (String directive : cacheControl.split(",")) {
+            if (name.equalsIgnoreCase(directive.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析以秒为单位的非负整数, 非法时返回-1
+     */
+    private static long parseSeconds(String value) {
+        try {
+            return Math.max(-1, Long.parseLong(value.trim().replace("\"", "")));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 实际发送的请求头的值, 由助手协商压缩时为协商的编码
+     */
+    private static String requestHeader(HttpHelper request, String name) {
+        if ("Accept-Encoding".equalsIgnoreCase(name) && request.isCompressionNegotiated()) {
+            return HttpHelper.NEGOTIATED_ENCODING;
+        }
+        return request.headerValue(name);
+    }
+
+    private Response load(HttpHelper request, String key, Entry stale) throws IOException {
+        if (stale != null) {
+            if (stale.etag != null && !request.hasHeader("If-None-Match")) {
+                request.header.put("If-None-Match", stale.etag);
+            }
+            if (stale.lastModified != null && !request.hasHeader("If-Modified-Since")) {
+                request.header.put("If-Modified-Since", stale.lastModified);
+            }
+        }
+        HttpURLConnection connection = request.connect();
+        long now = System.currentTimeMillis();
+        if (stale != null && request.responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            request.release(connection, HttpHelper.discard(connection.getInputStream()), null);
+            Entry refreshed = Entry.of(connection, request, stale.status, stale.body, now, stale);
+            store(key, refreshed);
+            request.responseCode = stale.status;
+            return new Response(stale.status, stale.body);
+        }
+        int status = request.responseCode;
+        byte[] body;
+        try (InputStream is = request.openStream(connection)) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            HttpHelper.copy(is, os);
+            body = os.toByteArray();
+        }
+        if (status == HttpURLConnection.HTTP_OK) {
+            store(key, Entry.of(connection, request, status, body, now, null));
+        }
+        return new Response(status, body);
+    }
+
+    private Entry lookup(String key) {
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        if (directory == null) {
+            return null;
+        }
+        Entry entry = readDisk(key);
+        if (entry != null) {
+            putMemory(key, entry);
+        }
+        return entry;
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry == null) {
+            synchronized (this) {
+                Entry old = memory.remove(key);
+                if (old != null) {
+                    memoryBytes -= old.weight();
+                }
+            }
+            if (directory != null) {
+                deleteDisk(diskFile(key));
+            }
+            return;
+        }
+        putMemory(key, entry);
+        if (directory != null) {
+            writeDisk(key, entry);
+        }
+    }
+
+    private synchronized void putMemory(String key, Entry entry) {
+        Entry old = memory.remove(key);
+        if (old != null) {
+            memoryBytes -= old.weight();
+        }
+        if (entry.weight() > maxMemoryBytes) {
+            return;
+        }
+        memory.put(key, entry);
+        memoryBytes += entry.weight();
+        Iterator<Entry> it = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().weight();
+            it.remove();
+        }
+    }
+
+    /**
+     * 磁盘缓存文件, 同一地址仅保存最近写入的一个版本
+     *
+     * @param key 缓存键或请求地址
+     */
+    private Path diskFile(String key) {
+        int end = key.indexOf('\n');
+        String url = end < 0 ? key : key.substring(0, end);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2 + 6);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return directory.resolve(sb.append(".cache").toString());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Path> cacheFiles() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.cache")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("list http cache directory failed, directory:{}", directory, e);
+        }
+        return files;
+    }
+
+    private Entry readDisk(String key) {
+        Path file = diskFile(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != DISK_MAGIC || !key.equals(in.readUTF())) {
+                return null;
+            }
+            int status = in.readInt();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            long dateAt = in.readLong();
+            long expiresAt = in.readLong();
+            boolean noCache = in.readBoolean();
+            int varyCount = in.readInt();
+            Map<String, String> vary = new LinkedHashMap<>();
+            for (int i = 0; i < varyCount; i++) {
+                vary.put(in.readUTF(), in.readBoolean() ? in.readUTF() : null);
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(status, body, etag, lastModified, dateAt, expiresAt, noCache, vary);
+        } catch (IOException e) {
+            log.warn("read http cache failed, file:{}", file, e);
+            deleteDisk(file);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        Path file = diskFile(key);
+        try {
+            Path temp = Files.createTempFile(directory, "http", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(DISK_MAGIC);
+                out.writeUTF(key);
+                out.writeInt(entry.status);
+                out.writeBoolean(entry.etag != null);
+                if (entry.etag != null) {
+                    out.writeUTF(entry.etag);
+                }
+                out.writeBoolean(entry.lastModified != null);
+                if (entry.lastModified != null) {
+                    out.writeUTF(entry.lastModified);
+                }
+                out.writeLong(entry.dateAt);
+                out.writeLong(entry.expiresAt);
+                out.writeBoolean(entry.noCache);
+                out.writeInt(entry.vary.size());
+                for (Map.Entry<String, String> e : entry.vary.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeBoolean(e.getValue() != null);
+                    if (e.getValue() != null) {
+                        out.writeUTF(e.getValue());
+                    }
+                }
+                out.writeInt(entry.body.length);
+                out.write(entry.body);
+            }
+            synchronized (diskLock) {
+                long old = Files.exists(file) ? Files.size(file) : 0;
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                diskBytes += Files.size(file) - old;
+                trimDisk();
+            }
+        } catch (IOException e) {
+            log.warn("write http cache failed, file:{}", file, e);
+        }
+    }
+
+    private void trimDisk() throws IOException {
+        if (diskBytes <= maxDiskBytes) {
+            return;
+        }
+        List<Path> files = cacheFiles();
+        Map<Path, FileTime> times = new LinkedHashMap<>();
+        for (Path f : files) {
+            times.put(f, Files.getLastModifiedTime(f));
+        }
+        files.sort(Comparator.comparing(times::get));
+        for (Path f : files) {
+            if (diskBytes <= maxDiskBytes) {
+                break;
+            }
+            long size = Files.size(f);
+            if (Files.deleteIfExists(f)) {
+                diskBytes -= size;
+            }
+        }
+    }
+
+    private void deleteDisk(Path file) {
+        synchronized (diskLock) {
+            try {
+                if (Files.exists(file)) {
+                    long size = Files.size(file);
+                    if (Files.deleteIfExists(file)) {
+                        diskBytes -= size;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("delete http cache failed, file:{}", file, e);
+            }
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static class Entry {
+        private final int status;
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+        /**
+         * 响应在源服务器生成的时间, 即收到时间减去 Age
+         */
+        private final long dateAt;
+        private final long expiresAt;
+        private final boolean noCache;
+        private final Map<String, String> vary;
+
+        Entry(int status, byte[] body, String etag, String lastModified, long dateAt, long expiresAt, boolean noCache,
+              Map<String, String> vary) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.dateAt = dateAt;
+            this.expiresAt = expiresAt;
+            this.noCache = noCache;
+            this.vary = vary;
+        }
+
+        /**
+         * 根据响应头创建缓存项, 不可缓存时返回null
+         *
+         * @param request 请求, 用于记录 Vary 指定的请求头
+         * @param stale   重新验证前的缓存项, 响应头未携带校验信息时沿用
+         */
+        static Entry of(HttpURLConnection connection, HttpHelper request, int status, byte[] body, long now, Entry stale) {
+            boolean noStore = false;
+            boolean noCache = false;
+            long maxAge = -1;
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            if (cacheControl != null) {
+                for (String directive : cacheControl.split(",")) {
+                    String d = directive.trim().toLowerCase(Locale.ROOT);
+                    if ("no-store".equals(d) || "private".equals(d) || d.startsWith("private=")) {
+                        noStore = true;
+                    } else if ("no-cache".equals(d)) {
+                        noCache = true;
+                    } else if (d.startsWith("max-age=")) {
+                        // 非法的 max-age 视为未设置
+                        maxAge = parseSeconds(d.substring(8));
+                    }
+                }
+            } else if ("no-cache".equalsIgnoreCase(connection.getHeaderField("Pragma"))) {
+                noCache = true;
+            }
+            if (noStore) {
+                return null;
+            }
+            Map<String, String> vary = new LinkedHashMap<>();
+            String varyHeader = connection.getHeaderField("Vary");
+            if (varyHeader != null) {
+                for (String name : varyHeader.split(",")) {
+                    name = name.trim();
+                    if ("*".equals(name)) {
+                        return null;
+                    }
+                    if (!name.isEmpty()) {
+                        vary.put(name, requestHeader(request, name));
+                    }
+                }
+            }
+            // 经由上游缓存的响应已存在 Age 秒, 新鲜期从源服务器生成响应时算起
+            String ageHeader = connection.getHeaderField("Age");
+            long age = ageHeader == null ? -1 : parseSeconds(ageHeader);
+            long dateAt = age > 0 ? now - age * 1000 : now;
+            long expiresAt;
+            if (maxAge >= 0) {
+                expiresAt = dateAt + maxAge * 1000;
+            } else {
+                long expiration = connection.getExpiration();
+                expiresAt = expiration > 0 ? expiration : now;
+            }
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            if (stale != null) {
+                etag = etag == null ? stale.etag : etag;
+                lastModified = lastModified == null ? stale.lastModified : lastModified;
+            }
+            if (expiresAt <= now && etag == null && lastModified == null) {
+                return null;
+            }
+            return new Entry(status, body, etag, lastModified, dateAt, expiresAt, noCache, vary);
+        }
+
+        /**
+         * 请求的 Vary 请求头是否与缓存时一致
+         */
+        boolean matches(HttpHelper request) {
+            for (Map.Entry<String, String> e : vary.entrySet()) {
+                if (!Objects.equals(e.getValue(), requestHeader(request, e.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isFresh(long now) {
+            return !noCache && now < expiresAt;
+        }
+
+        long weight() {
+            return body.length + 128;
+        }
+    }
+
+}
@@ -4,13 +4,29 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * http请求助手
@@ -19,6 +35,11 @@ import java.util.Map;
  */
 @Slf4j
 public class HttpHelper {
+    private static final int CHUNK_SIZE = 8192;
+    static final String NEGOTIATED_ENCODING = "gzip, deflate";
+    private static volatile HttpTransport defaultTransport = new PooledHttpTransport();
+    private static volatile HttpListener defaultListener;
+    private static volatile Executor defaultExecutor = newDefaultExecutor();
     protected String url;
     protected String method;
     protected Charset charset = StandardCharsets.UTF_8;
@@ -29,7 +50,20 @@ public class HttpHelper {
     protected Map<String, String> queryParams = new LinkedHashMap<>();
     protected Map<String, String> formParams = new LinkedHashMap<>();
     protected String body;
+    protected BodyWriter bodyWriter;
+    protected long bodyLength = -1;
+    protected boolean compression = true;
+    protected boolean gzipBody;
+    protected HttpCache cache;
+    protected RetryPolicy retryPolicy;
+    protected CircuitBreaker circuitBreaker;
+    protected boolean replayable = true;
+    protected HttpListener listener = defaultListener;
+    protected HttpTrace trace;
+    protected int attempts;
     protected int responseCode = -1;
+    protected HttpTransport transport = defaultTransport;
+    protected Executor executor = defaultExecutor;
 
 
     public static HttpHelper get(String url) {
@@ -56,15 +90,72 @@ public class HttpHelper {
         return new HttpHelper(url, "OPTIONS");
     }
 
+    /**
+     * 设置全局默认传输层, 仅影响之后创建的请求
+     *
+     * @param transport 传输层
+     */
+    public static void defaultTransport(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport must not be null");
+        }
+        defaultTransport = transport;
+    }
+
+    /**
+     * 设置全局默认的异步执行线程池, 仅影响之后创建的请求
+     * <p>
+     * 内置线程池大小固定, 大量并发的慢请求会排队; 需要更高并发时可替换为自定义线程池
+     *
+     * @param executor 线程池
+     */
+    public static void defaultExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        defaultExecutor = executor;
+    }
+
+    /**
+     * 设置全局默认的请求监听器, 仅影响之后创建的请求
+     *
+     * @param listener 监听器, 为null时不监听
+     */
+    public static void defaultListener(HttpListener listener) {
+        defaultListener = listener;
+    }
+
+    /**
+     * 默认异步线程池, 线程数固定为处理器数的2倍(至少4个), 超出的请求排队等待; 线程为守护线程, 空闲60秒后回收
+     */
+    private static Executor newDefaultExecutor() {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "http-helper-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     protected static String formatQueryParams(Map<?, ?> args) {
+        return formatQueryParams(args, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 将参数编码为 k1=v1&amp;k2=v2 的形式
+     *
+     * @param args    参数
+     * @param charset 字符集
+     * @return 编码结果, 参数为空时返回null
+     */
+    protected static String formatQueryParams(Map<?, ?> args, Charset charset) {
         if (args != null && !args.isEmpty()) {
             StringBuilder sb = new StringBuilder();
-            Iterator<? extends Map.Entry<?, ?>> it = args.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<?, ?> next = it.next();
-                sb.append(next.getKey()).append("=").append(next.getValue()).append("&");
-            }
-            return sb.substring(0, sb.length() - 1);
+            UrlEncoder.appendParams(sb, args, charset, false);
+            return sb.toString();
         }
         return null;
     }
@@ -92,6 +183,87 @@ public class HttpHelper {
     }
 
 
+    public HttpHelper transport(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport must not be null");
+        }
+        this.transport = transport;
+        return this;
+    }
+
+    public HttpHelper executor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 是否自动协商响应压缩(gzip/deflate)并在读取时解压, 默认开启; 手动设置 Accept-Encoding 请求头时不生效
+     *
+     * @param compression 是否开启
+     * @return this
+     */
+    public HttpHelper compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * 使用gzip压缩请求体, 压缩后长度未知, 使用分块传输
+     *
+     * @return this
+     */
+    public HttpHelper gzipBody() {
+        this.gzipBody = true;
+        return this;
+    }
+
+    /**
+     * 使用响应缓存, 仅对无请求体的GET请求生效
+     *
+     * @param cache 响应缓存
+     * @return this
+     */
+    public HttpHelper cache(HttpCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * 设置重试策略, 以不可重复读取的输入流作为请求体时不会重试
+     *
+     * @param retryPolicy 重试策略
+     * @return this
+     */
+    public HttpHelper retry(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * 设置熔断器, 同一熔断器可由多个请求共享
+     *
+     * @param circuitBreaker 熔断器
+     * @return this
+     */
+    public HttpHelper circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * 设置请求监听器, 用于采集各阶段耗时等指标
+     *
+     * @param listener 监听器, 为null时不监听
+     * @return this
+     */
+    public HttpHelper listener(HttpListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
     public HttpHelper charset(Charset charset) {
         this.charset = charset;
         return this;
@@ -118,7 +290,7 @@ public class HttpHelper {
     }
 
     public HttpHelper formParam(String key, String value) {
-        if (body != null) {
+        if (body != null || bodyWriter != null) {
             throw new IllegalStateException("form and request body cannot be set at the same time");
         }
         formParams.put(key, value);
@@ -126,7 +298,7 @@ public class HttpHelper {
     }
 
     public HttpHelper formParam(Map<String, String> params) {
-        if (body != null) {
+        if (body != null || bodyWriter != null) {
             throw new IllegalStateException("form and request body cannot be set at the same time");
         }
         formParams.putAll(params);
@@ -134,104 +306,676 @@ public class HttpHelper {
     }
 
     public HttpHelper bodyParam(String json) {
-        if (!formParams.isEmpty()) {
-            throw new IllegalStateException("form and request body cannot be set at the same time");
-        }
+        checkBodyAvailable();
         body = json;
         return this;
     }
 
+    public HttpHelper bodyParam(byte[] bytes) {
+        checkBodyAvailable();
+        bodyWriter = os -> os.write(bytes);
+        bodyLength = bytes.length;
+        return this;
+    }
+
+    /**
+     * 以流作为请求体, 长度未知, 使用分块传输
+     *
+     * @param is 输入流, 请求发送完毕后不会被关闭
+     * @return this
+     */
+    public HttpHelper bodyParam(InputStream is) {
+        return bodyParam(is, -1);
+    }
 
+    /**
+     * 以流作为请求体
+     *
+     * @param is     输入流, 请求发送完毕后不会被关闭
+     * @param length 内容长度, 未知时传-1, 使用分块传输
+     * @return this
+     */
+    public HttpHelper bodyParam(InputStream is, long length) {
+        checkBodyAvailable();
+        bodyWriter = os -> copy(is, os);
+        bodyLength = length;
+        replayable = false;
+        return this;
+    }
+
+    /**
+     * 以文件作为请求体, 发送时流式读取, 不会将文件整体读入内存
+     *
+     * @param path 文件路径
+     * @return this
+     */
     @SneakyThrows
+    public HttpHelper bodyParam(Path path) {
+        checkBodyAvailable();
+        bodyLength = Files.size(path);
+        bodyWriter = os -> Files.copy(path, os);
+        return this;
+    }
+
+    /**
+     * 以回调方式写出请求体, 长度未知, 使用分块传输; 重试时会再次调用
+     *
+     * @param writer 请求体写出方式
+     * @return this
+     */
+    public HttpHelper bodyWriter(BodyWriter writer) {
+        checkBodyAvailable();
+        bodyWriter = writer;
+        bodyLength = -1;
+        return this;
+    }
+
+    private void checkBodyAvailable() {
+        if (!formParams.isEmpty()) {
+            throw new IllegalStateException("form and request body cannot be set at the same time");
+        }
+        if (body != null || bodyWriter != null) {
+            throw new IllegalStateException("request body has been set");
+        }
+    }
+
+
     protected HttpURLConnection execute() {
+        markExecuted();
+        prepareBody();
+        return send(requestUrl());
+    }
+
+    /**
+     * 将form参数及文本请求体转换为请求体写出方式
+     */
+    protected void prepareBody() {
+        // form参数, 直接编码为请求体字节
+        if (!formParams.isEmpty() && bodyWriter == null) {
+            byte[] bytes = UrlEncoder.formBody(formParams, charset);
+            bodyWriter = os -> os.write(bytes);
+            bodyLength = bytes.length;
+            if (!hasHeader("Content-Type")) {
+                header.put("Content-Type", "application/x-www-form-urlencoded; charset=" + charset.name());
+            }
+        }
+        // 文本请求体按字符集编码, 以定长方式发送
+        if (body != null && bodyWriter == null) {
+            byte[] bytes = body.getBytes(charset);
+            bodyWriter = os -> os.write(bytes);
+            bodyLength = bytes.length;
+        }
+    }
+
+    /**
+     * 打开连接并发送请求头及请求体, 每次尝试调用一次
+     *
+     * @param url 请求地址
+     * @return 已发送请求的连接
+     */
+    @SneakyThrows
+    protected HttpURLConnection send(String url) {
+        URL target = new URL(url);
+        attempts++;
+        HttpTrace trace = null;
+        if (listener != null) {
+            trace = new HttpTrace(method, url, PooledHttpTransport.hostKey(target), attempts);
+            this.trace = trace;
+            try {
+                listener.onStart(trace);
+            } catch (RuntimeException e) {
+                log.warn("http listener failed, url:{}", trace.getUrl(), e);
+            }
+            // 预先解析以单独统计解析耗时, 结果由JDK地址缓存供随后的连接使用
+            long start = System.nanoTime();
+            try {
+                InetAddress.getByName(target.getHost());
+            } catch (UnknownHostException ignore) {
+                // 由建立连接时抛出
+            }
+            trace.dnsNanos = System.nanoTime() - start;
+        }
+        // 通过传输层打开连接
+        HttpURLConnection connection;
+        try {
+            connection = transport.open(target);
+        } catch (IOException | RuntimeException e) {
+            finishTrace(e);
+            throw e;
+        }
+        if (trace != null && transport instanceof PooledHttpTransport) {
+            trace.poolInUse = ((PooledHttpTransport) transport).inUse(target);
+        }
+        try {
+            // 设置连接请求方式
+            connection.setRequestMethod(method);
+            // 设置连接超时时间, 毫秒
+            connection.setConnectTimeout(connectTimeout);
+            // 设置读取超时时间, 毫秒
+            connection.setReadTimeout(readTimeout);
+
+            // 设置传入参数的格式(Content-Type等):请求参数应该是 name1=value1&name2=value2 的形式。
+            if (header != null && !header.isEmpty()) {
+                for (Map.Entry<?, ?> entry : header.entrySet()) {
+                    connection.setRequestProperty(entry.getKey().toString(), entry.getValue().toString());
+                }
+            }
+            if (isCompressionNegotiated()) {
+                connection.setRequestProperty("Accept-Encoding", NEGOTIATED_ENCODING);
+            }
+            // 默认值为：true，当前向远程服务读取数据时，设置为true，该参数可有可无
+            connection.setDoInput(true);
+            if (bodyWriter != null) {
+                // 默认值为：false，当向远程服务器传送数据/写数据时，需要设置为true
+                connection.setDoOutput(true);
+                if (gzipBody) {
+                    connection.setRequestProperty("Content-Encoding", "gzip");
+                    connection.setChunkedStreamingMode(CHUNK_SIZE);
+                } else if (bodyLength >= 0) {
+                    // 长度已知时定长发送, 否则分块发送, 避免在内存中缓冲整个请求体
+                    connection.setFixedLengthStreamingMode(bodyLength);
+                } else {
+                    connection.setChunkedStreamingMode(CHUNK_SIZE);
+                }
+            }
+            long start = System.nanoTime();
+            connection.connect();
+            if (trace != null) {
+                trace.connectNanos = System.nanoTime() - start;
+            }
+            if (bodyWriter != null) {
+                start = System.nanoTime();
+                OutputStream raw = connection.getOutputStream();
+                if (trace != null) {
+                    raw = new CountingOutputStream(raw, trace);
+                }
+                try (OutputStream os = gzipBody ? new GZIPOutputStream(raw, CHUNK_SIZE) : raw) {
+                    bodyWriter.writeTo(os);
+                }
+                if (trace != null) {
+                    trace.writeNanos = System.nanoTime() - start;
+                }
+            }
+            if (trace != null) {
+                trace.sentAt = System.nanoTime();
+            }
+        } catch (Exception e) {
+            release(connection, false, e);
+            throw e;
+        }
+        log.debug("request url:{}, body:{}", url, body);
+        return connection;
+
+    }
+
+    /**
+     * 标记请求已执行, 每个请求只能执行一次
+     */
+    protected void markExecuted() {
         if (executed) {
             throw new IllegalStateException("request has been executed");
         } else {
             executed = true;
         }
-        HttpURLConnection connection = null;
+    }
 
-        String url = this.url;
-        // 路径参数
-        if (!queryParams.isEmpty()) {
-            if (!url.contains("?")) {
-                url += "?" + formatQueryParams(queryParams);
-            } else {
-                if (url.endsWith("&")) {
-                    url += "&";
+    /**
+     * 拼接路径参数后的完整请求地址
+     *
+     * @return 请求地址
+     */
+    protected String requestUrl() {
+        return UrlEncoder.appendQuery(url, queryParams, charset);
+    }
+
+    /**
+     * 发送请求并读取响应状态码, 按重试策略及熔断器处理失败
+     *
+     * @return 已获取响应状态的连接
+     */
+    @SneakyThrows
+    protected HttpURLConnection connect() {
+        markExecuted();
+        prepareBody();
+        String url = requestUrl();
+        String host = PooledHttpTransport.hostKey(new URL(url));
+        for (int attempt = 1; ; attempt++) {
+            if (circuitBreaker != null) {
+                circuitBreaker.acquire(host);
+            }
+            HttpURLConnection connection = null;
+            try {
+                connection = send(url);
+                responseCode = connection.getResponseCode();
+                if (trace != null) {
+                    trace.firstByteNanos = System.nanoTime() - trace.sentAt;
                 }
-                url += formatQueryParams(queryParams);
+            } catch (IOException e) {
+                if (connection != null) {
+                    release(connection, false, e);
+                }
+                if (circuitBreaker != null) {
+                    circuitBreaker.onFailure(host);
+                }
+                // 连接未建立时请求尚未发出, 非幂等请求也可安全重试
+                boolean sent = !(e instanceof ConnectException);
+                if (retryPolicy == null || !replayable || !retryPolicy.canRetry(method, attempt, sent)) {
+                    throw e;
+                }
+                long delay = retryPolicy.delay(attempt, -1);
+                log.warn("request failed, retry in {}ms, attempt:{}, url:{}, error:{}", delay, attempt, url, e.toString());
+                sleep(delay);
+                continue;
             }
-        }
-        // form参数
-        if (!formParams.isEmpty()) {
-            body = formatQueryParams(formParams);
-        }
-        // 通过远程url连接对象打开连接
-        connection = (HttpURLConnection) new URL(url).openConnection();
-        // 设置连接请求方式
-        connection.setRequestMethod(method);
-        // 设置连接超时时间, 毫秒
-        connection.setConnectTimeout(connectTimeout);
-        // 设置读取超时时间, 毫秒
-        connection.setReadTimeout(readTimeout);
-
-        // 设置传入参数的格式(Content-Type等):请求参数应该是 name1=value1&name2=value2 的形式。
-        if (header != null && !header.isEmpty()) {
-            for (Map.Entry<?, ?> entry : header.entrySet()) {
-                connection.setRequestProperty(entry.getKey().toString(), entry.getValue().toString());
-            }
-        }
-        // 默认值为：true，当前向远程服务读取数据时，设置为true，该参数可有可无
-        connection.setDoInput(true);
-        if (body != null) {
-            // 默认值为：false，当向远程服务器传送数据/写数据时，需要设置为true
-            connection.setDoOutput(true);
-            try (OutputStream os = connection.getOutputStream()) {
-                // 通过输出流对象将参数写出去/传输出去,它是通过字节数组写出的
-                os.write(body.getBytes());
-                // 通过连接对象获取一个输入流，向远程读取
+            boolean failed = responseCode >= 500 || responseCode == 429;
+            if (circuitBreaker != null) {
+                if (failed) {
+                    circuitBreaker.onFailure(host);
+                } else {
+                    circuitBreaker.onSuccess(host);
+                }
             }
+            if (retryPolicy == null || !replayable || !retryPolicy.isRetryStatus(responseCode)
+                    || !retryPolicy.canRetry(method, attempt, true)) {
+                return connection;
+            }
+            long retryAfter = retryAfter(connection);
+            if (!retryPolicy.acceptsRetryAfter(retryAfter)) {
+                return connection;
+            }
+            long delay = retryPolicy.delay(attempt, retryAfter);
+            release(connection, discard(connection.getErrorStream()), null);
+            log.warn("request failed, retry in {}ms, attempt:{}, http code:{}, url:{}", delay, attempt, responseCode, url);
+            sleep(delay);
         }
-        log.debug("request url:{}, body:{}", url, body);
-        return connection;
+    }
+
+    /**
+     * 解析 Retry-After 响应头, 支持秒数及http日期两种格式
+     *
+     * @param connection 连接
+     * @return 等待时间, 毫秒, 未指定时为-1
+     */
+    protected static long retryAfter(HttpURLConnection connection) {
+        String value = connection.getHeaderField("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            long date = connection.getHeaderFieldDate("Retry-After", -1);
+            return date < 0 ? -1 : Math.max(0, date - System.currentTimeMillis());
+        }
+    }
 
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for retry");
+        }
     }
 
+    /**
+     * 打开已获取响应状态的连接的响应流
+     *
+     * @param connection 连接
+     * @return 响应流
+     */
     @SneakyThrows
-    public InputStream responseStream() {
-        HttpURLConnection execute = null;
+    protected InputStream openStream(HttpURLConnection connection) {
         try {
-            execute = execute();
-            int code = execute.getResponseCode();
-            if (code != 200) {
-                log.warn("request may execute failed , http code:{},  url:{}, body:{}", code, url, body);
+            if (responseCode != 200) {
+                log.warn("request may execute failed , http code:{},  url:{}, body:{}", responseCode, url, body);
             }
-            return execute.getInputStream();
-        } finally {
-            if (execute != null) {
-                execute.disconnect();
+            InputStream is = connection.getInputStream();
+            if (trace != null) {
+                trace.readStart = System.nanoTime();
+                is = new CountingInputStream(is, trace);
             }
+            return new ResponseStream(connection, decode(connection, is));
+        } catch (IOException e) {
+            release(connection, discard(connection.getErrorStream()), e);
+            throw e;
         }
     }
 
-    @SneakyThrows
-    public String responseString(Charset charset) {
-        StringBuilder sb = new StringBuilder();
-        try (InputStream is = responseStream();
-             InputStreamReader isr = new InputStreamReader(is, charset);
-             BufferedReader br = new BufferedReader(isr)) {
-            String temp;
-            while ((temp = br.readLine()) != null) {
-                sb.append(temp);
-                sb.append("\r\n");
+    /**
+     * 将连接归还传输层, 并结束本次尝试的记录
+     *
+     * @param connection 连接
+     * @param reusable   连接是否可复用
+     * @param error      失败原因, 成功时为null
+     */
+    protected void release(HttpURLConnection connection, boolean reusable, Throwable error) {
+        transport.release(connection, reusable);
+        finishTrace(error);
+    }
+
+    private void finishTrace(Throwable error) {
+        HttpTrace trace = this.trace;
+        if (trace == null) {
+            return;
+        }
+        this.trace = null;
+        trace.finish(responseCode, error);
+        try {
+            listener.onComplete(trace);
+        } catch (RuntimeException e) {
+            log.warn("http listener failed, url:{}", trace.getUrl(), e);
+        }
+    }
+
+    /**
+     * 获取响应流, 使用完毕后必须关闭(建议使用 try-with-resources), 关闭时连接归还传输层以便复用
+     * <p>
+     * 使用 {@link PooledHttpTransport} 时, 未关闭的响应流会一直占用主机的连接名额, 直到其被垃圾回收或超过 leaseTimeout,
+     * 期间同一主机的并发请求可能因名额耗尽而等待或失败
+     *
+     * @return 响应流
+     */
+    public InputStream responseStream() {
+        if (cache != null && cache.accepts(this)) {
+            return cache.fetch(this);
+        }
+        return openStream(connect());
+    }
+
+    /**
+     * 是否由本助手协商响应压缩, 用户自行设置 Accept-Encoding 时由用户自行处理响应内容
+     *
+     * @return boolean
+     */
+    protected boolean isCompressionNegotiated() {
+        return compression && !hasHeader("Accept-Encoding");
+    }
+
+    /**
+     * 是否已设置指定请求头, 忽略大小写
+     *
+     * @param name 请求头名称
+     * @return boolean
+     */
+    protected boolean hasHeader(String name) {
+        for (String key : header.keySet()) {
+            if (name.equalsIgnoreCase(key)) {
+                return true;
             }
-            return sb.toString();
         }
+        return false;
+    }
+
+    /**
+     * 获取请求头的值, 名称不区分大小写
+     *
+     * @param name 请求头名称
+     * @return 值, 未设置时返回null
+     */
+    protected String headerValue(String name) {
+        for (Map.Entry<String, String> entry : header.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按 Content-Encoding 解压响应流
+     *
+     * @param connection 连接
+     * @param is         原始响应流
+     * @return 解压后的响应流
+     * @throws IOException 读取异常
+     */
+    protected InputStream decode(HttpURLConnection connection, InputStream is) throws IOException {
+        String encoding = connection.getContentEncoding();
+        if (encoding == null || !isCompressionNegotiated() || "HEAD".equals(method)
+                || responseCode == HttpURLConnection.HTTP_NO_CONTENT
+                || responseCode == HttpURLConnection.HTTP_NOT_MODIFIED
+                || connection.getContentLengthLong() == 0) {
+            return is;
+        }
+        encoding = encoding.trim();
+        if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is, CHUNK_SIZE);
+        }
+        if ("deflate".equalsIgnoreCase(encoding)) {
+            // 规范要求 zlib 格式, 部分服务端返回不带 zlib 头的原始 deflate 数据
+            PushbackInputStream pis = new PushbackInputStream(is, 2);
+            byte[] head = new byte[2];
+            int n = pis.read(head);
+            if (n <= 0) {
+                return pis;
+            }
+            pis.unread(head, 0, n);
+            boolean zlib = n == 2 && (head[0] & 0x0F) == 8 && (((head[0] & 0xFF) << 8) | (head[1] & 0xFF)) % 31 == 0;
+            return new InflaterInputStream(pis, new Inflater(!zlib), CHUNK_SIZE);
+        }
+        return is;
+    }
+
+    /**
+     * 复制输入流至输出流
+     *
+     * @param is 输入流
+     * @param os 输出流
+     * @return 复制的字节数
+     * @throws IOException 读写异常
+     */
+    protected static long copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            os.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 读取并丢弃剩余内容, 使底层连接可被复用
+     *
+     * @param is 输入流
+     * @return 是否读取完毕
+     */
+    protected static boolean discard(InputStream is) {
+        if (is == null) {
+            return false;
+        }
+        try (InputStream in = is) {
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {
+                // ignore
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 以自定义方式读取响应流, 读取完毕后自动关闭响应流, 可用于直接从响应流解析json等
+     *
+     * @param reader 响应流读取方式
+     * @return 读取结果
+     */
+    @SneakyThrows
+    public <T> T responseAs(Function<? super InputStream, ? extends T> reader) {
+        try (InputStream is = responseStream()) {
+            return reader.apply(is);
+        }
+    }
+
+    /**
+     * 将响应内容写入输出流, 输出流不会被关闭
+     *
+     * @param os 输出流
+     * @return 写入的字节数
+     */
+    @SneakyThrows
+    public long responseTo(OutputStream os) {
+        try (InputStream is = responseStream()) {
+            return copy(is, os);
+        }
+    }
+
+    /**
+     * 将响应内容写入文件, 文件已存在时覆盖
+     *
+     * @param path 文件路径
+     * @return 写入的字节数
+     */
+    @SneakyThrows
+    public long responseTo(Path path) {
+        try (InputStream is = responseStream()) {
+            return Files.copy(is, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 获取响应内容的原始字节
+     *
+     * @return 响应内容
+     */
+    @SneakyThrows
+    public byte[] responseBytes() {
+        try (InputStream is = responseStream()) {
+            long length = is instanceof ResponseStream ? ((ResponseStream) is).connection.getContentLengthLong() : -1;
+            ByteArrayOutputStream os = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE ? (int) length : 4096);
+            copy(is, os);
+            return os.toByteArray();
+        }
+    }
+
+    public String responseString(Charset charset) {
+        return new String(responseBytes(), charset);
     }
 
     public String responseString() {
         return responseString(charset);
     }
 
+    /**
+     * 在异步线程池中执行请求, 不阻塞调用线程
+     *
+     * @param handler 请求处理方式, 如 {@code HttpHelper::responseString}
+     * @return 处理结果
+     */
+    public <V> CompletableFuture<V> executeAsync(Function<? super HttpHelper, ? extends V> handler) {
+        return CompletableFuture.supplyAsync(() -> handler.apply(this), executor);
+    }
+
+    public CompletableFuture<InputStream> responseStreamAsync() {
+        return executeAsync(HttpHelper::responseStream);
+    }
+
+    public CompletableFuture<String> responseStringAsync(Charset charset) {
+        return executeAsync(h -> h.responseString(charset));
+    }
+
+    public CompletableFuture<String> responseStringAsync() {
+        return executeAsync(HttpHelper::responseString);
+    }
+
+    /**
+     * 请求体写出方式
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream os) throws IOException;
+    }
+
+    /**
+     * 响应流, 关闭时将连接归还传输层
+     */
+    protected class ResponseStream extends FilterInputStream {
+        private final HttpURLConnection connection;
+        private boolean closed;
+
+        protected ResponseStream(HttpURLConnection connection, InputStream in) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean reusable = false;
+            try {
+                super.close();
+                reusable = true;
+            } finally {
+                release(connection, reusable, null);
+            }
+        }
+    }
+
+    /**
+     * 统计请求体发送字节数
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final HttpTrace trace;
+
+        CountingOutputStream(OutputStream out, HttpTrace trace) {
+            super(out);
+            this.trace = trace;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            trace.bytesSent++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            trace.bytesSent += len;
+        }
+    }
+
+    /**
+     * 统计响应体接收字节数
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final HttpTrace trace;
+
+        CountingInputStream(InputStream in, HttpTrace trace) {
+            super(in);
+            this.trace = trace;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                trace.bytesReceived++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                trace.bytesReceived += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            trace.bytesReceived += skipped;
+            return skipped;
+        }
+    }
+
 }
@@ -0,0 +1,27 @@
+package io.github.luxmixus.helper.core;
+
+/**
+ * http请求监听器, 用于采集各阶段耗时等指标或接入链路追踪
+ * <p>
+ * 每次尝试(含重试)对应一个 {@link HttpTrace}, 回调在请求线程中同步执行, 实现应尽量轻量且线程安全
+ *
+ * @author luxmixus
+ */
+public interface HttpListener {
+
+    /**
+     * 开始一次尝试, 此时尚未打开连接
+     *
+     * @param trace 本次尝试的记录
+     */
+    default void onStart(HttpTrace trace) {
+    }
+
+    /**
+     * 一次尝试结束: 响应流已关闭, 或请求失败
+     *
+     * @param trace 本次尝试的记录
+     */
+    void onComplete(HttpTrace trace);
+
+}
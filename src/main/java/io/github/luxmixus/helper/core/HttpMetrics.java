@@ -0,0 +1,244 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于内存直方图的http指标统计, 按主机记录各阶段耗时分布, 字节数, 状态码及连接池占用
+ * <p>
+ * 直方图按2的幂分段, 每段再四等分, 分位数的相对误差不超过25%, 记录时无锁且不分配内存
+ *
+ * @author luxmixus
+ */
+public class HttpMetrics implements HttpListener {
+    private final Map<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * 统计阶段
+     */
+    public enum Phase {
+        DNS, CONNECT, WRITE, FIRST_BYTE, READ, TOTAL
+    }
+
+    @Override
+    public void onComplete(HttpTrace trace) {
+        hosts.computeIfAbsent(trace.getHost(), k -> new HostMetrics()).record(trace);
+    }
+
+    /**
+     * 已记录的主机
+     *
+     * @return 主机标识集合
+     */
+    public Set<String> hosts() {
+        return Collections.unmodifiableSet(hosts.keySet());
+    }
+
+    /**
+     * 请求尝试次数
+     *
+     * @param host 主机标识
+     * @return 次数
+     */
+    public long count(String host) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.count.sum();
+    }
+
+    /**
+     * 失败次数, 包括异常及4xx/5xx响应
+     *
+     * @param host 主机标识
+     * @return 次数
+     */
+    public long errors(String host) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.errors.sum();
+    }
+
+    /**
+     * 指定阶段耗时的分位数
+     *
+     * @param host       主机标识
+     * @param phase      阶段
+     * @param percentile 分位, 0-100
+     * @return 耗时, 纳秒
+     */
+    public long percentile(String host, Phase phase, double percentile) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.histograms[phase.ordinal()].percentile(percentile);
+    }
+
+    /**
+     * 指定阶段的最大耗时
+     *
+     * @param host  主机标识
+     * @param phase 阶段
+     * @return 耗时, 纳秒
+     */
+    public long max(String host, Phase phase) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.histograms[phase.ordinal()].max.get();
+    }
+
+    public long bytesSent(String host) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.bytesSent.sum();
+    }
+
+    public long bytesReceived(String host) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? 0 : m.bytesReceived.sum();
+    }
+
+    /**
+     * 各状态码出现次数, 未收到响应的记为-1
+     *
+     * @param host 主机标识
+     * @return 状态码与次数的映射
+     */
+    public Map<Integer, Long> statusCounts(String host) {
+        Map<Integer, Long> result = new TreeMap<>();
+        HostMetrics m = hosts.get(host);
+        if (m != null) {
+            m.status.forEach((k, v) -> result.put(k, v.sum()));
+        }
+        return result;
+    }
+
+    /**
+     * 观测到的最大连接池占用
+     *
+     * @param host 主机标识
+     * @return 连接数, 未知时为-1
+     */
+    public int maxPoolInUse(String host) {
+        HostMetrics m = hosts.get(host);
+        return m == null ? -1 : m.maxPoolInUse.get();
+    }
+
+    public void reset() {
+        hosts.clear();
+    }
+
+    /**
+     * 生成文本报告, 按总耗时p99降序排列
+     *
+     * @return 报告
+     */
+    public String report() {
+        List<String> keys = new ArrayList<>(hosts.keySet());
+        keys.sort(Comparator.comparingLong((String h) -> percentile(h, Phase.TOTAL, 99)).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (String host : keys) {
+            sb.append(host).append(" count:").append(count(host)).append(" errors:").append(errors(host))
+                    .append(" sent:").append(bytesSent(host)).append(" received:").append(bytesReceived(host))
+                    .append(" maxPoolInUse:").append(maxPoolInUse(host)).append(" status:").append(statusCounts(host))
+                    .append('\n');
+            for (Phase phase : Phase.values()) {
+                sb.append("  ").append(phase)
+                        .append(" p50:").append(percentile(host, phase, 50) / 1000)
+                        .append("us p90:").append(percentile(host, phase, 90) / 1000)
+                        .append("us p99:").append(percentile(host, phase, 99) / 1000)
+                        .append("us max:").append(max(host, phase) / 1000).append("us\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class HostMetrics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final AtomicInteger maxPoolInUse = new AtomicInteger(-1);
+        private final Map<Integer, LongAdder> status = new ConcurrentHashMap<>();
+        private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+        HostMetrics() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        void record(HttpTrace trace) {
+            count.increment();
+            if (trace.getError() != null || trace.getStatus() >= 400) {
+                errors.increment();
+            }
+            bytesSent.add(trace.getBytesSent());
+            bytesReceived.add(trace.getBytesReceived());
+            maxPoolInUse.accumulateAndGet(trace.getPoolInUse(), Math::max);
+            status.computeIfAbsent(trace.getStatus(), k -> new LongAdder()).increment();
+            histograms[Phase.DNS.ordinal()].record(trace.getDnsNanos());
+            histograms[Phase.CONNECT.ordinal()].record(trace.getConnectNanos());
+            histograms[Phase.WRITE.ordinal()].record(trace.getWriteNanos());
+            histograms[Phase.FIRST_BYTE.ordinal()].record(trace.getFirstByteNanos());
+            histograms[Phase.READ.ordinal()].record(trace.getReadNanos());
+            histograms[Phase.TOTAL.ordinal()].record(trace.getTotalNanos());
+        }
+    }
+
+    /**
+     * 对数分段直方图: 小于4的值各占一个桶, 其余按最高位分段, 每段按次高两位四等分
+     */
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(256);
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder total = new LongAdder();
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(index(v));
+            total.increment();
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        long percentile(double percentile) {
+            long n = total.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int index(long v) {
+            if (v < 4) {
+                return (int) v;
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            return ((exp - 1) << 2) + (int) ((v >>> (exp - 2)) & 3);
+        }
+
+        private static long upperBound(int index) {
+            if (index < 4) {
+                return index;
+            }
+            int exp = (index >>> 2) + 1;
+            long sub = index & 3;
+            if (exp >= 62) {
+                return Long.MAX_VALUE;
+            }
+            return ((5 + sub) << (exp - 2)) - 1;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package io.github.luxmixus.helper.core;
+
+/**
+ * 单次http请求尝试的记录, 耗时单位均为纳秒, 未经历的阶段为0
+ *
+ * @author luxmixus
+ */
+public class HttpTrace {
+    private final String method;
+    private final String url;
+    private final String host;
+    private final int attempt;
+    private final long startNanos = System.nanoTime();
+    long dnsNanos;
+    long connectNanos;
+    long writeNanos;
+    long sentAt;
+    long firstByteNanos;
+    long readStart;
+    long readNanos;
+    long totalNanos;
+    long bytesSent;
+    long bytesReceived;
+    int poolInUse = -1;
+    int status = -1;
+    Throwable error;
+
+    HttpTrace(String method, String url, String host, int attempt) {
+        this.method = method;
+        this.url = url;
+        this.host = host;
+        this.attempt = attempt;
+    }
+
+    void finish(int status, Throwable error) {
+        long now = System.nanoTime();
+        this.status = status;
+        this.error = error;
+        this.totalNanos = now - startNanos;
+        if (readStart > 0) {
+            this.readNanos = now - readStart;
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 主机标识, 见 {@link PooledHttpTransport#hostKey}
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * 第几次尝试, 从1开始
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * 响应状态码, 未收到响应时为-1
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 失败原因, 成功时为null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null && status >= 200 && status < 400;
+    }
+
+    /**
+     * 域名解析耗时, 命中JDK地址缓存时接近0
+     */
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    /**
+     * 建立连接耗时, 复用keep-alive连接时接近0
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * 发送请求体耗时
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * 请求发送完毕至收到响应头的耗时
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    /**
+     * 打开响应流至关闭的耗时, 包含调用方处理响应内容的时间
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * 接收的响应体字节数(解压前)
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * 获取连接后该主机正在使用的连接数, 传输层非 {@link PooledHttpTransport} 时为-1
+     */
+    public int getPoolInUse() {
+        return poolInUse;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url + " attempt:" + attempt + " status:" + status
+                + " dns:" + dnsNanos / 1000 + "us connect:" + connectNanos / 1000 + "us write:" + writeNanos / 1000
+                + "us ttfb:" + firstByteNanos / 1000 + "us read:" + readNanos / 1000 + "us total:" + totalNanos / 1000
+                + "us sent:" + bytesSent + " received:" + bytesReceived + (error == null ? "" : " error:" + error);
+    }
+
+}
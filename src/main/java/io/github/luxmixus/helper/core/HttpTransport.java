@@ -0,0 +1,31 @@
+package io.github.luxmixus.helper.core;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * http传输层, 负责为 {@link HttpHelper} 打开和回收连接
+ *
+ * @author luxmixus
+ */
+public interface HttpTransport {
+
+    /**
+     * 打开连接
+     *
+     * @param url 请求地址
+     * @return 未连接的 {@link HttpURLConnection}
+     * @throws IOException 无法获取连接
+     */
+    HttpURLConnection open(URL url) throws IOException;
+
+    /**
+     * 回收连接, 同一连接重复回收时应忽略
+     *
+     * @param connection 连接
+     * @param reusable   响应是否已完整读取且底层连接可复用, 不可复用时应断开连接
+     */
+    void release(HttpURLConnection connection, boolean reusable);
+
+}
@@ -0,0 +1,305 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 可增量维护的树
+ * <p>
+ * 由 {@link TreeHelper#liveTree(Collection)} 构建, 节点的子元素列表在增删改移时原地更新, 无需重新建立关系,
+ * 子树大小随之以 O(深度) 维护. 结构以本对象记录的父id为准, {@link #move(Object, Object)} 不会修改节点自身的父id属性.
+ * 设置到节点上的子元素列表为树内部列表的只读视图, 修改结构需通过本对象的方法.
+ * <p>
+ * 非线程安全, 并发修改需外部同步
+ *
+ * @author luxmixus
+ */
+public class LiveTree<T, R> {
+    private final Function<T, R> idGetter;
+    private final Function<T, R> parentIdGetter;
+    private final BiConsumer<T, ? super List<T>> childrenSetter;
+    private final Map<R, T> nodeMap = new HashMap<>();
+    private final Map<R, R> parentMap = new HashMap<>();
+    private final Map<R, List<T>> childrenMap = new HashMap<>();
+    private final Map<R, Integer> sizeMap = new HashMap<>();
+
+    LiveTree(Function<T, R> idGetter,
+             Function<T, R> parentIdGetter,
+             BiConsumer<T, ? super List<T>> childrenSetter,
+             Collection<? extends T> elements) {
+        this.idGetter = idGetter;
+        this.parentIdGetter = parentIdGetter;
+        this.childrenSetter = childrenSetter;
+        TreeIndex<T, R> index = new TreeIndex<>(idGetter, parentIdGetter, childrenSetter, elements);
+        for (T e : index.getElements()) {
+            R id = idGetter.apply(e);
+            if (nodeMap.putIfAbsent(id, e) != null) {
+                throw new IllegalArgumentException("duplicate id: " + id);
+            }
+            if (index.depth(id) < 0) {
+                throw new IllegalStateException("circular parent reference detected, id: " + id);
+            }
+            parentMap.put(id, parentIdGetter.apply(e));
+            childrenMap.computeIfAbsent(parentIdGetter.apply(e), k -> new ArrayList<>()).add(e);
+            sizeMap.put(id, index.subtreeSize(id));
+        }
+        for (T e : index.getElements()) {
+            setChildren(e, idGetter.apply(e));
+        }
+    }
+
+    /**
+     * 节点数量
+     *
+     * @return 节点数量
+     */
+    public int size() {
+        return nodeMap.size();
+    }
+
+    /**
+     * 是否包含指定id的节点
+     *
+     * @param id id
+     * @return boolean
+     */
+    public boolean containsId(R id) {
+        return nodeMap.containsKey(id);
+    }
+
+    /**
+     * 获取指定id对应节点
+     *
+     * @param id id
+     * @return 节点, 不存在时返回null
+     */
+    public T getNode(R id) {
+        return nodeMap.get(id);
+    }
+
+    /**
+     * 获取指定id节点对应的父id
+     *
+     * @param id id
+     * @return 父id
+     */
+    public R getParentId(R id) {
+        return parentMap.get(id);
+    }
+
+    /**
+     * 获取指定id节点对应的子集
+     *
+     * @param id id
+     * @return 直接子元素列表(不可修改)
+     */
+    public List<T> getChildren(R id) {
+        List<T> children = childrenMap.get(id);
+        return children == null ? Collections.emptyList() : Collections.unmodifiableList(children);
+    }
+
+    /**
+     * 获取根节点(父id为空或父节点不在树中)
+     *
+     * @return 根节点列表
+     */
+    public List<T> getRoots() {
+        List<T> roots = new ArrayList<>();
+        for (Map.Entry<R, T> entry : nodeMap.entrySet()) {
+            if (!nodeMap.containsKey(parentMap.get(entry.getKey()))) {
+                roots.add(entry.getValue());
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * 获取以指定节点为根的子树大小(包含节点自身)
+     *
+     * @param id id
+     * @return 子树大小, 节点不存在时返回0
+     */
+    public int subtreeSize(R id) {
+        Integer size = sizeMap.get(id);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 获取节点深度, 根节点深度为0
+     *
+     * @param id id
+     * @return 深度, 节点不存在时返回-1
+     */
+    public int depth(R id) {
+        if (!nodeMap.containsKey(id)) {
+            return -1;
+        }
+        int depth = 0;
+        for (R p = parentMap.get(id); nodeMap.containsKey(p); p = parentMap.get(p)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * 查找指定id节点对应的所有父节点
+     *
+     * @param id id
+     * @return 父元素列表, 由近及远
+     */
+    public List<T> findAllParentById(R id) {
+        List<T> parents = new ArrayList<>();
+        if (!nodeMap.containsKey(id)) {
+            return parents;
+        }
+        for (R p = parentMap.get(id); nodeMap.containsKey(p); p = parentMap.get(p)) {
+            parents.add(nodeMap.get(p));
+        }
+        return parents;
+    }
+
+    /**
+     * 添加节点, 已存在的以该节点id为父id的孤立节点会挂到该节点下
+     *
+     * @param node 节点
+     */
+    public void add(T node) {
+        R id = idGetter.apply(node);
+        if (nodeMap.containsKey(id)) {
+            throw new IllegalArgumentException("duplicate id: " + id);
+        }
+        R parentId = parentIdGetter.apply(node);
+        checkNotDescendant(id, parentId);
+        List<T> children = childrenMap.computeIfAbsent(id, k -> new ArrayList<>());
+        int size = 1;
+        for (T child : children) {
+            size += sizeMap.get(idGetter.apply(child));
+        }
+        nodeMap.put(id, node);
+        parentMap.put(id, parentId);
+        sizeMap.put(id, size);
+        childrenMap.computeIfAbsent(parentId, k -> new ArrayList<>()).add(node);
+        setChildren(node, id);
+        addToAncestors(parentId, size);
+    }
+
+    /**
+     * 删除节点及其全部子节点
+     *
+     * @param id id
+     * @return 被删除的节点列表, 节点不存在时返回空列表
+     */
+    public List<T> remove(R id) {
+        List<T> removed = new ArrayList<>();
+        T node = nodeMap.get(id);
+        if (node == null) {
+            return removed;
+        }
+        R parentId = parentMap.get(id);
+        removeIdentity(childrenMap.get(parentId), node);
+        addToAncestors(parentId, -sizeMap.get(id));
+        removed.add(node);
+        for (int i = 0; i < removed.size(); i++) {
+            R removedId = idGetter.apply(removed.get(i));
+            List<T> children = childrenMap.remove(removedId);
+            if (children != null) {
+                removed.addAll(children);
+            }
+            nodeMap.remove(removedId);
+            parentMap.remove(removedId);
+            sizeMap.remove(removedId);
+        }
+        return removed;
+    }
+
+    /**
+     * 将节点(连同其子树)移动到新的父节点下
+     *
+     * @param id          id
+     * @param newParentId 新父id
+     */
+    public void move(R id, R newParentId) {
+        T node = nodeMap.get(id);
+        if (node == null) {
+            throw new IllegalArgumentException("node not found, id: " + id);
+        }
+        R oldParentId = parentMap.get(id);
+        if (Objects.equals(oldParentId, newParentId)) {
+            return;
+        }
+        checkNotDescendant(id, newParentId);
+        int size = sizeMap.get(id);
+        removeIdentity(childrenMap.get(oldParentId), node);
+        addToAncestors(oldParentId, -size);
+        parentMap.put(id, newParentId);
+        childrenMap.computeIfAbsent(newParentId, k -> new ArrayList<>()).add(node);
+        addToAncestors(newParentId, size);
+    }
+
+    /**
+     * 更新节点, 以节点id定位原节点并替换, 父id变化时同时移动节点
+     *
+     * @param node 节点
+     */
+    public void update(T node) {
+        R id = idGetter.apply(node);
+        T old = nodeMap.get(id);
+        if (old == null) {
+            throw new IllegalArgumentException("node not found, id: " + id);
+        }
+        R parentId = parentIdGetter.apply(node);
+        if (!Objects.equals(parentMap.get(id), parentId)) {
+            move(id, parentId);
+        }
+        List<T> siblings = childrenMap.get(parentId);
+        for (int i = 0; i < siblings.size(); i++) {
+            if (siblings.get(i) == old) {
+                siblings.set(i, node);
+                break;
+            }
+        }
+        nodeMap.put(id, node);
+        setChildren(node, id);
+    }
+
+    /**
+     * 校验目标父节点不是当前节点自身或其子节点, 避免成环
+     */
+    private void checkNotDescendant(R id, R parentId) {
+        for (R p = parentId; nodeMap.containsKey(p) || Objects.equals(p, id); p = parentMap.get(p)) {
+            if (Objects.equals(p, id)) {
+                throw new IllegalArgumentException("node cannot be placed under itself or its descendant, id: " + id);
+            }
+        }
+    }
+
+    /**
+     * 为节点设置子元素列表的只读视图, 视图随树的增删改移同步变化
+     */
+    private void setChildren(T node, R id) {
+        childrenSetter.accept(node, Collections.unmodifiableList(childrenMap.computeIfAbsent(id, k -> new ArrayList<>())));
+    }
+
+    private void addToAncestors(R parentId, int delta) {
+        for (R p = parentId; nodeMap.containsKey(p); p = parentMap.get(p)) {
+            sizeMap.merge(p, delta, Integer::sum);
+        }
+    }
+
+    private static <T> void removeIdentity(List<T> list, T node) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == node) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+}
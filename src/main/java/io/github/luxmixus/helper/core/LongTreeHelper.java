@@ -0,0 +1,349 @@
+package io.github.luxmixus.helper.core;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * long类型id的树状工具助手
+ * <p>
+ * 提供 {@link TreeHelper} 中基于元素集合的建树及查询方法: buildRelation, treeRoot, treeById, treeByNode,
+ * findDirectChildren*, findAllChildren*, streamAllChildrenById, findAllParent* 及 findAllParents;
+ * 不提供 index, aggregate*, nestedSet, liveTree 及 buildRelationParallel, 需要时使用 {@link TreeHelper}.
+ * id以基本类型读取和比较, 内部使用开放寻址的 long-int 映射及与 {@link TreeHelper} 共用的数组树结构, 避免 Long 装箱及 HashMap 节点开销
+ *
+ * <p>
+ * 基本类型的父id不能为null, 因此与 {@link TreeHelper} 以null父id表示根节点不同, 这里父id不在元素中的节点即为根节点,
+ * 通常使用 0 或 -1 等不会作为元素id的哨兵值; 以哨兵值调用 {@link #findAllChildrenById} 等方法可检索全部根节点及其子节点
+ *
+ * @author luxmixus
+ */
+@RequiredArgsConstructor
+public class LongTreeHelper<T> {
+    private final ToLongFunction<T> idGetter;
+    private final ToLongFunction<T> parentIdGetter;
+    private final BiConsumer<T, ? super List<T>> childrenSetter;
+
+    /**
+     * 创建树助手
+     *
+     * @param idGetter       id getter
+     * @param parentIdGetter 父id getter
+     * @param childrenSetter 子元素setter
+     * @return {@link LongTreeHelper } 对应的树助手
+     */
+    public static <T> LongTreeHelper<T> of(ToLongFunction<T> idGetter,
+                                           ToLongFunction<T> parentIdGetter,
+                                           BiConsumer<T, ? super List<T>> childrenSetter) {
+        return new LongTreeHelper<>(idGetter, parentIdGetter, childrenSetter);
+    }
+
+    /**
+     * 建立关系
+     *
+     * @param elements 源列表
+     * @return {@link List } 源列表
+     */
+    public List<T> buildRelation(Collection<? extends T> elements) {
+        Layout layout = new Layout(elements);
+        for (int i = 0; i < layout.size; i++) {
+            childrenSetter.accept(layout.elements.get(i), layout.children(i));
+        }
+        return layout.elements;
+    }
+
+    /**
+     * 构建根目录树
+     *
+     * @param elements 元素
+     * @param filter   根目录元素过滤规则
+     * @return {@link List } 根目录元素
+     */
+    public List<T> treeRoot(Collection<? extends T> elements, Predicate<? super T> filter) {
+        return buildRelation(elements).stream().filter(filter)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 构建以指定id节点作为根节点的树
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 指定id对应节点
+     */
+    public T treeById(Collection<? extends T> elements, long id) {
+        List<T> ts = buildRelation(elements);
+        for (T t : ts) {
+            if (idGetter.applyAsLong(t) == id) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构建以当前节点作为根节点的树
+     *
+     * @param elements 元素
+     * @param node     节点
+     * @return 节点
+     */
+    public T treeByNode(Collection<? extends T> elements, T node) {
+        return treeById(elements, idGetter.applyAsLong(node));
+    }
+
+    /**
+     * 获取指定id节点对应的子集
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 直接子元素列表
+     */
+    public List<T> findDirectChildrenById(Collection<? extends T> elements, long id) {
+        ArrayList<T> children = new ArrayList<>();
+        for (T e : elements) {
+            if (parentIdGetter.applyAsLong(e) == id) {
+                children.add(e);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * 获取当前节点对应的子集
+     *
+     * @param elements 元素
+     * @param node     节点
+     * @return 直接子元素列表
+     */
+    public List<T> findDirectChildrenByNode(Collection<? extends T> elements, T node) {
+        return findDirectChildrenById(elements, idGetter.applyAsLong(node));
+    }
+
+    /**
+     * 检索指定id对应的所有子节点
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 子元素列表
+     */
+    public List<T> findAllChildrenById(Collection<? extends T> elements, long id) {
+        ArrayList<T> result = new ArrayList<>();
+        new Layout(elements).allChildrenIterator(id).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * 以流的形式检索指定id对应的所有子节点, 可提前终止而无需构建完整子树列表
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 子元素流
+     */
+    public Stream<T> streamAllChildrenById(Collection<? extends T> elements, long id) {
+        Iterator<T> iterator = new Layout(elements).allChildrenIterator(id);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * 检索指定节点对应的所有子节点
+     *
+     * @param elements 元素
+     * @param node     节点
+     * @return 子元素列表
+     */
+    public List<T> findAllChildrenByNode(Collection<? extends T> elements, T node) {
+        return findAllChildrenById(elements, idGetter.applyAsLong(node));
+    }
+
+    /**
+     * 查找指定id节点对应的所有父节点
+     * <p>
+     * 父节点不在元素中时视为已到达根节点; 父链成环时抛出 {@link IllegalStateException}
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 父元素列表, 由近及远
+     */
+    public List<T> findAllParentById(Collection<? extends T> elements, long id) {
+        return new Layout(elements).findAllParent(id);
+    }
+
+    /**
+     * 批量查找多个id节点对应的所有父节点
+     *
+     * @param elements 元素
+     * @param ids      id集合
+     * @return id与父元素列表的映射
+     */
+    public Map<Long, List<T>> findAllParents(Collection<? extends T> elements, Collection<Long> ids) {
+        Layout layout = new Layout(elements);
+        Map<Long, List<T>> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            result.put(id, layout.findAllParent(id));
+        }
+        return result;
+    }
+
+    /**
+     * 查找指定节点对应的所有父节点
+     *
+     * @param elements 元素
+     * @param node     节点
+     * @return 父元素列表
+     */
+    public List<T> findAllParentByNode(Collection<? extends T> elements, T node) {
+        return findAllParentById(elements, idGetter.applyAsLong(node));
+    }
+
+    /**
+     * 元素列表及其以下标表示的树结构, id到首个元素下标的映射使用 {@link LongIntMap}
+     */
+    private class Layout {
+        private final ArrayList<T> elements;
+        private final int size;
+        private final long[] parentIds;
+        private final LongIntMap positions;
+        private final TreeLayout tree;
+
+        Layout(Collection<? extends T> source) {
+            elements = new ArrayList<>(source);
+            size = elements.size();
+            parentIds = new long[size];
+            positions = new LongIntMap(size);
+            int[] canonical = new int[size];
+            for (int i = 0; i < size; i++) {
+                T e = elements.get(i);
+                parentIds[i] = parentIdGetter.applyAsLong(e);
+                int first = positions.putIfAbsent(idGetter.applyAsLong(e), i);
+                canonical[i] = first < 0 ? i : first;
+            }
+            int[] parents = new int[size];
+            for (int i = 0; i < size; i++) {
+                parents[i] = positions.get(parentIds[i]);
+            }
+            tree = new TreeLayout(parents, canonical);
+        }
+
+        List<T> children(int i) {
+            int p = tree.canonical[i];
+            ArrayList<T> children = new ArrayList<>(tree.childStart[p + 1] - tree.childStart[p]);
+            for (int c = tree.childStart[p]; c < tree.childStart[p + 1]; c++) {
+                children.add(elements.get(tree.children[c]));
+            }
+            return children;
+        }
+
+        List<T> findAllParent(long id) {
+            ArrayList<T> result = new ArrayList<>();
+            int p = positions.get(id);
+            if (p < 0) {
+                return result;
+            }
+            for (p = tree.parents[p]; p >= 0; p = tree.parents[p]) {
+                if (result.size() == size) {
+                    throw new IllegalStateException("circular parent reference detected, id: " + id);
+                }
+                result.add(elements.get(p));
+            }
+            return result;
+        }
+
+        Iterator<T> allChildrenIterator(long id) {
+            int p = positions.get(id);
+            PrimitiveIterator.OfInt positions;
+            if (p >= 0) {
+                positions = tree.descendants(p);
+            } else {
+                // 父节点不在元素中(如根节点的父id), 直接子元素需扫描得到
+                int[] direct = new int[8];
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    if (parentIds[i] == id) {
+                        if (count == direct.length) {
+                            direct = Arrays.copyOf(direct, count << 1);
+                        }
+                        direct[count++] = i;
+                    }
+                }
+                positions = tree.descendants(direct, 0, count);
+            }
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return positions.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return elements.get(positions.nextInt());
+                }
+            };
+        }
+    }
+
+    /**
+     * 开放寻址(线性探测)的 long-int 映射, 值为非负数, 不存在时返回-1
+     */
+    private static final class LongIntMap {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        LongIntMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+            mask = capacity - 1;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        /**
+         * @return 已存在的值, 不存在时写入并返回-1
+         */
+        int putIfAbsent(long key, int value) {
+            int i = slot(key);
+            while (values[i] >= 0) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return -1;
+        }
+
+        int get(long key) {
+            int i = slot(key);
+            while (values[i] >= 0) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package io.github.luxmixus.helper.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 树的嵌套集合(区间)编码
+ * <p>
+ * 由 {@link TreeHelper#nestedSet(java.util.Collection)} 构建, 节点按先序编号, 每个节点对应区间 [enter, exit],
+ * 子孙节点的编号均落在祖先节点的区间内, 因此祖先/子孙判断仅需两次整数比较.
+ * 构建后不可变, 可序列化或通过 {@link #toMap()} / {@link #of(Map)} 导出导入, 以便缓存及跨进程共享.
+ * 父链成环的节点无法从根节点到达, 不会被编码
+ *
+ * @author luxmixus
+ */
+public class NestedSet<R> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] ids;
+    private final int[] exits;
+    /**
+     * id到先序编号的索引, 可由 ids 重建, 不参与序列化
+     */
+    private transient Map<R, Integer> enters;
+
+    NestedSet(Object[] ids, int[] exits) {
+        this.ids = ids;
+        this.exits = exits;
+        buildEnters();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void buildEnters() {
+        this.enters = new HashMap<>(Math.max(16, (int) (ids.length / .75f) + 1));
+        for (int i = 0; i < ids.length; i++) {
+            enters.putIfAbsent((R) ids[i], i);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        buildEnters();
+    }
+
+    /**
+     * 由导出的区间映射还原编码
+     *
+     * @param intervals id与区间 [enter, exit] 的映射
+     * @return {@link NestedSet } 嵌套集合编码
+     */
+    public static <R> NestedSet<R> of(Map<R, int[]> intervals) {
+        Object[] ids = new Object[intervals.size()];
+        int[] exits = new int[intervals.size()];
+        for (Map.Entry<R, int[]> entry : intervals.entrySet()) {
+            int[] interval = entry.getValue();
+            if (interval == null || interval.length != 2 || interval[0] < 0 || interval[0] >= ids.length
+                    || interval[1] < interval[0] || interval[1] >= ids.length || ids[interval[0]] != null) {
+                throw new IllegalArgumentException("illegal interval of id: " + entry.getKey());
+            }
+            ids[interval[0]] = entry.getKey();
+            exits[interval[0]] = interval[1];
+        }
+        return new NestedSet<>(ids, exits);
+    }
+
+    /**
+     * 导出id与区间 [enter, exit] 的映射, 按先序排列
+     *
+     * @return 区间映射
+     */
+    @SuppressWarnings("unchecked")
+    public Map<R, int[]> toMap() {
+        Map<R, int[]> map = new LinkedHashMap<>(Math.max(16, (int) (ids.length / .75f) + 1));
+        for (int i = 0; i < ids.length; i++) {
+            map.putIfAbsent((R) ids[i], new int[]{i, exits[i]});
+        }
+        return map;
+    }
+
+    /**
+     * 已编码的节点数量
+     *
+     * @return 节点数量
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * 是否包含指定id的节点
+     *
+     * @param id id
+     * @return boolean
+     */
+    public boolean contains(R id) {
+        return enters.containsKey(id);
+    }
+
+    /**
+     * 获取节点进入编号(先序编号)
+     *
+     * @param id id
+     * @return 进入编号, 节点不存在时返回-1
+     */
+    public int getEnter(R id) {
+        Integer enter = enters.get(id);
+        return enter == null ? -1 : enter;
+    }
+
+    /**
+     * 获取节点离开编号(子树中最后一个节点的先序编号)
+     *
+     * @param id id
+     * @return 离开编号, 节点不存在时返回-1
+     */
+    public int getExit(R id) {
+        Integer enter = enters.get(id);
+        return enter == null ? -1 : exits[enter];
+    }
+
+    /**
+     * 判断节点a是否为节点b的祖先(不包含自身)
+     *
+     * @param a 祖先节点id
+     * @param b 子孙节点id
+     * @return boolean
+     */
+    public boolean isAncestor(R a, R b) {
+        Integer enterA = enters.get(a);
+        Integer enterB = enters.get(b);
+        return enterA != null && enterB != null && enterA < enterB && enterB <= exits[enterA];
+    }
+
+    /**
+     * 判断节点a是否为节点b自身或其祖先
+     *
+     * @param a 祖先节点id
+     * @param b 子孙节点id
+     * @return boolean
+     */
+    public boolean isAncestorOrSelf(R a, R b) {
+        Integer enterA = enters.get(a);
+        Integer enterB = enters.get(b);
+        return enterA != null && enterB != null && enterA <= enterB && enterB <= exits[enterA];
+    }
+
+    /**
+     * 获取指定id对应的所有子节点id, 按先序排列
+     *
+     * @param id id
+     * @return 子节点id列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<R> findAllChildIds(R id) {
+        Integer enter = enters.get(id);
+        if (enter == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>((List<R>) Arrays.asList(ids).subList(enter + 1, exits[enter] + 1));
+    }
+
+}
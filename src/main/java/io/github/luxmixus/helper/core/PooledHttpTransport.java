@@ -0,0 +1,275 @@
+package io.github.luxmixus.helper.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按主机限流的连接池传输层
+ * <p>
+ * 每个主机(协议+主机+端口)同时持有的连接数不超过 maxConnectionsPerHost, 超出时等待至多 acquireTimeout 毫秒.
+ * 连接在响应流关闭后归还且不主动断开, 由 JDK 的 keep-alive 缓存复用底层 socket, 空闲 socket 由 JDK 按
+ * keep-alive 超时关闭, 每个主机缓存的空闲 socket 数量可通过系统属性 http.maxConnections 调整.
+ * 长时间无请求的主机限流记录会被定期清除
+ * <p>
+ * 连接池不强引用已借出的连接, 未关闭的响应流被垃圾回收后其占用的名额会被回收; 设置 leaseTimeout 时,
+ * 借出超过该时长的名额也会被回收(连接本身不受影响), 以免遗漏关闭的响应流使主机永久不可用
+ *
+ * @author luxmixus
+ */
+@Slf4j
+public class PooledHttpTransport implements HttpTransport {
+    private static final long RECLAIM_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private final int maxConnectionsPerHost;
+    private final long acquireTimeout;
+    private final long idleTimeout;
+    private final long leaseTimeout;
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<>();
+    private final Map<HttpURLConnection, Lease> leased = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<HttpURLConnection> abandoned = new ReferenceQueue<>();
+    private volatile long lastEviction = System.currentTimeMillis();
+
+    public PooledHttpTransport() {
+        this(16, 10000, 60000);
+    }
+
+    /**
+     * 创建连接池传输层
+     *
+     * @param maxConnectionsPerHost 每个主机最大连接数
+     * @param acquireTimeout        获取连接的最长等待时间, 毫秒
+     * @param idleTimeout           主机限流记录的空闲清除时间, 毫秒
+     */
+    public PooledHttpTransport(int maxConnectionsPerHost, long acquireTimeout, long idleTimeout) {
+        this(maxConnectionsPerHost, acquireTimeout, idleTimeout, 0);
+    }
+
+    /**
+     * 创建连接池传输层
+     *
+     * @param maxConnectionsPerHost 每个主机最大连接数
+     * @param acquireTimeout        获取连接的最长等待时间, 毫秒
+     * @param idleTimeout           主机限流记录的空闲清除时间, 毫秒
+     * @param leaseTimeout          借出名额的最长持有时间, 毫秒, 超时后名额被回收; 0表示不限制
+     */
+    public PooledHttpTransport(int maxConnectionsPerHost, long acquireTimeout, long idleTimeout, long leaseTimeout) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.acquireTimeout = acquireTimeout;
+        this.idleTimeout = idleTimeout;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * 获取主机标识
+     *
+     * @param url 请求地址
+     * @return 协议://主机:端口
+     */
+    public static String hostKey(URL url) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol() + "://" + url.getHost() + ":" + port;
+    }
+
+    @Override
+    public HttpURLConnection open(URL url) throws IOException {
+        evictIdle();
+        reclaimAbandoned();
+        String key = hostKey(url);
+        HostPool pool = acquire(key);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            Lease lease = new Lease(connection, abandoned, key, pool);
+            leases.add(lease);
+            leased.put(connection, lease);
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            pool.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(HttpURLConnection connection, boolean reusable) {
+        Lease lease = leased.remove(connection);
+        if (lease == null) {
+            return;
+        }
+        if (!reusable) {
+            connection.disconnect();
+        }
+        lease.release();
+        leases.remove(lease);
+        lease.clear();
+    }
+
+    /**
+     * 指定主机正在使用的连接数
+     *
+     * @param url 请求地址
+     * @return 连接数
+     */
+    public int inUse(URL url) {
+        HostPool pool = pools.get(hostKey(url));
+        return pool == null ? 0 : maxConnectionsPerHost - pool.permits.availablePermits();
+    }
+
+    /**
+     * 所有主机正在使用的连接总数
+     *
+     * @return 连接数
+     */
+    public int inUse() {
+        reclaimAbandoned();
+        return leases.size();
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * 获取主机名额, 等待期间定期回收被遗弃或超时的名额
+     */
+    private HostPool acquire(String key) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeout);
+        while (true) {
+            HostPool pool = pools.computeIfAbsent(key, k -> new HostPool(maxConnectionsPerHost));
+            // 主机记录被清除后重新获取
+            while (!pool.retired) {
+                long remaining = deadline - System.nanoTime();
+                boolean acquired;
+                try {
+                    acquired = pool.permits.tryAcquire(Math.max(0, Math.min(remaining, RECLAIM_INTERVAL)), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for connection, host: " + key);
+                }
+                if (acquired) {
+                    return pool;
+                }
+                if (reclaimAbandoned() + reclaimExpired() == 0 && remaining <= 0) {
+                    throw new IOException("connection pool exhausted, host: " + key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 回收未关闭即被垃圾回收的连接所占的名额
+     *
+     * @return 回收数量
+     */
+    private int reclaimAbandoned() {
+        int count = 0;
+        Lease lease;
+        while ((lease = (Lease) abandoned.poll()) != null) {
+            leases.remove(lease);
+            if (lease.release()) {
+                count++;
+                log.warn("response stream was not closed, connection lease reclaimed, host:{}", lease.host);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 回收借出超过 leaseTimeout 的名额
+     *
+     * @return 回收数量
+     */
+    private int reclaimExpired() {
+        if (leaseTimeout <= 0) {
+            return 0;
+        }
+        int count = 0;
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases) {
+            if (now - lease.leasedAt > leaseTimeout && lease.release()) {
+                leases.remove(lease);
+                count++;
+                log.warn("connection lease expired after {}ms, host:{}", leaseTimeout, lease.host);
+            }
+        }
+        return count;
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < idleTimeout) {
+            return;
+        }
+        lastEviction = now;
+        for (String key : pools.keySet()) {
+            pools.computeIfPresent(key, (k, pool) -> {
+                // 一次性取走全部名额, 确保清除时没有连接在使用, 之后的获取会发现记录已清除并重建
+                if (now - pool.lastUsed > idleTimeout && pool.permits.tryAcquire(maxConnectionsPerHost)) {
+                    pool.retired = true;
+                    return null;
+                }
+                return pool;
+            });
+        }
+    }
+
+    private static class HostPool {
+        private final Semaphore permits;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean retired;
+
+        HostPool(int permits) {
+            this.permits = new Semaphore(permits, true);
+        }
+
+        void release() {
+            lastUsed = System.currentTimeMillis();
+            permits.release();
+        }
+    }
+
+    /**
+     * 借出记录, 以虚引用跟踪连接, 不阻止其被垃圾回收
+     */
+    private static class Lease extends PhantomReference<HttpURLConnection> {
+        private final String host;
+        private final HostPool pool;
+        private final long leasedAt = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(HttpURLConnection connection, ReferenceQueue<HttpURLConnection> queue, String host, HostPool pool) {
+            super(connection, queue);
+            this.host = host;
+            this.pool = pool;
+        }
+
+        /**
+         * 归还名额, 仅首次调用生效
+         *
+         * @return 是否由本次调用归还
+         */
+        boolean release() {
+            if (released.compareAndSet(false, true)) {
+                pool.release();
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
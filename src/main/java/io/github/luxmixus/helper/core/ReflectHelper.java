@@ -3,12 +3,28 @@ package io.github.luxmixus.helper.core;
 import com.google.common.base.Objects;
 import lombok.SneakyThrows;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 
 /**
  * 反射帮手
@@ -17,7 +33,56 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public abstract class ReflectHelper {
 
-    private static final Map<Class<?>, Map<String, Field>> FIELD_MAP_CACHE = new ConcurrentHashMap<>();
+    /**
+     * 并行批量转换的最小元素数量, 低于该数量时按顺序转换
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final ClassValue<MethodHandle> CONSTRUCTOR_CACHE = new ClassValue<MethodHandle>() {
+        @Override
+        @SneakyThrows
+        protected MethodHandle computeValue(Class<?> type) {
+            return MethodHandles.publicLookup().unreflectConstructor(type.getConstructor()).asType(CONSTRUCTOR_TYPE);
+        }
+    };
+    /**
+     * 类属性缓存, 使用 {@link ClassValue} 与类的生命周期绑定, 类卸载时缓存随之回收, 不会阻止类加载器回收
+     */
+    private static final ClassValue<Map<String, Field>> FIELD_MAP_CACHE = new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            return resolveFieldMap(type);
+        }
+    };
+    private static final ClassValue<Map<String, FieldAccessor>> ACCESSOR_CACHE = new ClassValue<Map<String, FieldAccessor>>() {
+        @Override
+        protected Map<String, FieldAccessor> computeValue(Class<?> type) {
+            Map<String, Field> fieldMap = FIELD_MAP_CACHE.get(type);
+            Map<String, FieldAccessor> map = new LinkedHashMap<>(fieldMap.size() * 4 / 3 + 1);
+            for (Field field : fieldMap.values()) {
+                map.put(field.getName(), new FieldAccessor(field));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    };
+    /**
+     * 复制器缓存, 绑定在来源类上, 按目标类区分; 仅用于目标类的加载器为来源类加载器本身或其祖先的情况
+     */
+    private static final ClassValue<Map<Class<?>, Copier<?, ?>>> SOURCE_COPIER_CACHE = new ClassValue<Map<Class<?>, Copier<?, ?>>>() {
+        @Override
+        protected Map<Class<?>, Copier<?, ?>> computeValue(Class<?> sourceClass) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    /**
+     * 复制器缓存, 绑定在目标类上, 按来源类区分; 仅用于来源类的加载器为目标类加载器的祖先的情况
+     */
+    private static final ClassValue<Map<Class<?>, Copier<?, ?>>> TARGET_COPIER_CACHE = new ClassValue<Map<Class<?>, Copier<?, ?>>>() {
+        @Override
+        protected Map<Class<?>, Copier<?, ?>> computeValue(Class<?> targetClass) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
 
     /**
@@ -34,44 +99,104 @@ public abstract class ReflectHelper {
     }
 
     /**
-     * 新建实例
+     * 新建实例, 公共无参构造器按类缓存
      *
      * @param clazz 类
      * @return 类实例
      */
     @SneakyThrows
+    @SuppressWarnings("unchecked")
     public static <T> T newInstance(Class<T> clazz) {
-        return clazz.getConstructor().newInstance();
+        return (T) (Object) CONSTRUCTOR_CACHE.get(clazz).invokeExact();
     }
 
     /**
-     * 指定类属性map
+     * 指定类属性map, 按类缓存
      *
      * @param clazz 类
-     * @return 属性map
+     * @return 属性map, 不可修改
      */
     public static Map<String, Field> fieldMap(Class<?> clazz) {
         if (isJavaCoreClass(clazz)) {
             throw new IllegalArgumentException("clazz must not be java class");
         }
-        Map<String, Field> stringFieldMap = FIELD_MAP_CACHE.get(clazz);
-        if (stringFieldMap != null) {
-            return stringFieldMap;
+        return FIELD_MAP_CACHE.get(clazz);
+    }
+
+    /**
+     * 指定类属性访问器map, 按类缓存
+     *
+     * @param clazz 类
+     * @return 属性访问器map, 不可修改
+     */
+    public static Map<String, FieldAccessor> accessors(Class<?> clazz) {
+        if (isJavaCoreClass(clazz)) {
+            throw new IllegalArgumentException("clazz must not be java class");
+        }
+        return ACCESSOR_CACHE.get(clazz);
+    }
+
+    /**
+     * 获取来源类到目标类的复制器, 按类缓存
+     * <p>
+     * 复制器缓存在加载器层级较低的一方上, 另一方本就由其加载器链引用, 缓存不会延长任何类及类加载器的存活时间;
+     * 两者的类加载器无父子关系时不缓存, 每次创建新的复制器
+     *
+     * @param sourceClass 来源类
+     * @param targetClass 目标类
+     * @return {@link Copier }
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> Copier<S, T> copier(Class<S> sourceClass, Class<T> targetClass) {
+        if (isJavaCoreClass(sourceClass) || isJavaCoreClass(targetClass)) {
+            throw new IllegalArgumentException("clazz must not be java class");
+        }
+        ClassLoader sourceLoader = sourceClass.getClassLoader();
+        ClassLoader targetLoader = targetClass.getClassLoader();
+        if (isAncestorOrSelf(targetLoader, sourceLoader)) {
+            return (Copier<S, T>) SOURCE_COPIER_CACHE.get(sourceClass).computeIfAbsent(targetClass, k -> new Copier<>(sourceClass, targetClass));
+        }
+        if (isAncestorOrSelf(sourceLoader, targetLoader)) {
+            return (Copier<S, T>) TARGET_COPIER_CACHE.get(targetClass).computeIfAbsent(sourceClass, k -> new Copier<>(sourceClass, targetClass));
         }
-        Map<String, Field> map = new HashMap<>();
+        return new Copier<>(sourceClass, targetClass);
+    }
+
+    /**
+     * ancestor 是否为 loader 本身或其祖先, null 表示启动类加载器
+     */
+    private static boolean isAncestorOrSelf(ClassLoader ancestor, ClassLoader loader) {
+        if (ancestor == null) {
+            return true;
+        }
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            if (l == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析类属性, 子类属性优先于父类同名属性
+     *
+     * @param clazz 类
+     * @return 属性map
+     */
+    private static Map<String, Field> resolveFieldMap(Class<?> clazz) {
+        Map<String, Field> map = new LinkedHashMap<>();
         while (clazz != null && Object.class != clazz && !clazz.isInterface()) {
             Field[] fields = clazz.getDeclaredFields();
             for (Field field : fields) {
-                field.setAccessible(true);
-                if (isSpecialModifier(field.getModifiers())) {
+                if (isSpecialModifier(field.getModifiers()) || map.containsKey(field.getName())) {
                     continue;
                 }
-                map.putIfAbsent(field.getName(), field);
+                field.setAccessible(true);
+                map.put(field.getName(), field);
             }
             clazz = clazz.getSuperclass();
         }
-        FIELD_MAP_CACHE.put(clazz, map);
-        return map;
+        return Collections.unmodifiableMap(map);
     }
 
     /**
@@ -97,20 +222,11 @@ public abstract class ReflectHelper {
      * @param target 目标
      * @return 目标对象
      */
-    @SneakyThrows
+    @SuppressWarnings("unchecked")
     public static <T> T copyFieldProperties(Object source, T target) {
         if (source == null || target == null || source.equals(target)) return target;
-        Map<String, Field> sourceMap = fieldMap(source.getClass());
-        Map<String, Field> targetMap = fieldMap(target.getClass());
-        for (Field field : sourceMap.values()) {
-            Object o = field.get(source);
-            if (o == null) continue;
-            Field targetFiled = targetMap.get(field.getName());
-            if (targetFiled != null && targetFiled.getType().isAssignableFrom(field.getType())) {
-                targetFiled.set(target, o);
-            }
-        }
-        return target;
+        Copier<Object, T> copier = (Copier<Object, T>) copier(source.getClass(), target.getClass());
+        return copier.copy(source, target);
     }
 
 
@@ -120,20 +236,62 @@ public abstract class ReflectHelper {
      * @param source 来源
      * @return {@link Map }
      */
-    @SneakyThrows
     public static Map<?, ?> objectToMap(Object source) {
         if (source == null) return null;
         if (source instanceof Map) return (Map<?, ?>) source;
-        HashMap<String, Object> map = new HashMap<>();
-        Collection<Field> fields = fieldMap(source.getClass()).values();
-        for (Field field : fields) {
-            Object o = field.get(source);
+        Collection<FieldAccessor> accessors = accessors(source.getClass()).values();
+        HashMap<String, Object> map = new HashMap<>(accessors.size() * 4 / 3 + 1);
+        for (FieldAccessor accessor : accessors) {
+            Object o = accessor.get(source);
             if (o == null) continue;
-            map.put(field.getName(), o);
+            map.put(accessor.getName(), o);
         }
         return map;
     }
 
+    /**
+     * 对象的只读map视图, 读取时才访问对应属性, 不复制属性值
+     * <p>
+     * 与 {@link #objectToMap} 一致, 值为null的属性不包含在视图中, 来源为map时返回其只读视图; 视图随对象属性变化
+     *
+     * @param source 来源
+     * @return 只读map视图
+     * @throws IllegalArgumentException 来源为含非字符串键的map
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> objectView(Object source) {
+        if (source == null) return null;
+        if (source instanceof Map) {
+            // 不转换键: 转换后的键无法在原map中直接查找, 因此在创建时拒绝非字符串键
+            for (Object key : ((Map<?, ?>) source).keySet()) {
+                if (!(key instanceof String)) {
+                    throw new IllegalArgumentException("map key must be string, key: " + key);
+                }
+            }
+            return Collections.unmodifiableMap((Map<String, Object>) source);
+        }
+        return new ObjectView(source, accessors(source.getClass()));
+    }
+
+    /**
+     * map转对象, 按属性名称读取值, 值为null或类型不匹配的属性不赋值
+     *
+     * @param map   来源
+     * @param clazz 目标类
+     * @return 目标对象
+     */
+    public static <T> T mapToObject(Map<?, ?> map, Class<T> clazz) {
+        if (map == null) return null;
+        T target = newInstance(clazz);
+        for (FieldAccessor accessor : accessors(clazz).values()) {
+            Object o = map.get(accessor.getName());
+            if (o != null && accessor.accepts(o)) {
+                accessor.set(target, o);
+            }
+        }
+        return target;
+    }
+
     /**
      * 对象转对象
      *
@@ -144,6 +302,54 @@ public abstract class ReflectHelper {
         return copyFieldProperties(source, newInstance(clazz));
     }
 
+    /**
+     * 创建转换为目标类的函数, 可用于 {@code stream().map(...)}, 复用缓存的构造器及复制器
+     * <p>
+     * 来源为null时返回null, 可在并行流中使用
+     *
+     * @param clazz 目标类
+     * @return 转换函数
+     */
+    public static <T> Function<Object, T> mapper(Class<T> clazz) {
+        return new Mapper<>(clazz);
+    }
+
+    /**
+     * 批量转换对象, 来源为null的元素转换结果为null
+     *
+     * @param sources 来源
+     * @param clazz   目标类
+     * @return 目标对象列表, 与来源顺序一致
+     */
+    public static <T> List<T> toTargetList(Collection<?> sources, Class<T> clazz) {
+        Mapper<T> mapper = new Mapper<>(clazz);
+        ArrayList<T> result = new ArrayList<>(sources.size());
+        for (Object source : sources) {
+            result.add(mapper.apply(source));
+        }
+        return result;
+    }
+
+    /**
+     * 使用线程池并行批量转换对象, 数量较少或线程池并行度为1时按顺序转换
+     *
+     * @param sources 来源
+     * @param clazz   目标类
+     * @param pool    线程池
+     * @return 目标对象列表, 与来源顺序一致
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> toTargetList(Collection<?> sources, Class<T> clazz, ForkJoinPool pool) {
+        Object[] array = sources.toArray();
+        // 分段数量约为并行度的四倍, 以平衡各线程的负载
+        int chunk = Math.max(PARALLEL_THRESHOLD, array.length / (pool.getParallelism() << 2) + 1);
+        if (pool.getParallelism() <= 1 || array.length <= chunk) {
+            return toTargetList(Arrays.asList(array), clazz);
+        }
+        pool.invoke(new MapTask(array, new Mapper<>(clazz), chunk, 0, array.length));
+        return (List<T>) new ArrayList<>(Arrays.asList(array));
+    }
+
 
     /**
      * 创建两个对象的差异属性(来源对象为null的属性不会判断)
@@ -152,23 +358,22 @@ public abstract class ReflectHelper {
      * @param target 目标
      * @return 差异属性对象, 若相同, 返回null
      */
-    @SneakyThrows
     @SuppressWarnings("unchecked")
     public static <T> T toDifference(T source, T target) {
         if (source == null || target == null || source.equals(target)) {
             return null;
         }
         Class<T> clazz = (Class<T>) source.getClass();
-        Map<String, Field> fieldMap = fieldMap(clazz);
+        Map<String, FieldAccessor> accessorMap = accessors(clazz);
         T instance = newInstance(clazz);
-        Collection<Field> values = fieldMap.values();
-        for (Field field : values) {
-            Object o = field.get(source);
-            Object o1 = field.get(target);
+        Collection<FieldAccessor> values = accessorMap.values();
+        for (FieldAccessor accessor : values) {
+            Object o = accessor.get(source);
+            Object o1 = accessor.get(target);
             if (Objects.equal(o,o1)) {
                 continue;
             }
-            field.set(instance, o);
+            accessor.set(instance, o);
         }
         return instance;
     }
@@ -186,4 +391,140 @@ public abstract class ReflectHelper {
         return target.getClass().getMethod(methodName).invoke(target, args);
     }
 
+    /**
+     * 转换函数, 缓存最近一次来源类对应的复制器
+     */
+    private static class Mapper<T> implements Function<Object, T> {
+        private final Class<T> clazz;
+        private volatile Copier<Object, T> last;
+
+        Mapper(Class<T> clazz) {
+            this.clazz = clazz;
+            // 提前解析构造器, 不存在公共无参构造器时立即失败, 不执行构造器
+            CONSTRUCTOR_CACHE.get(clazz);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T apply(Object source) {
+            if (source == null) {
+                return null;
+            }
+            Copier<Object, T> copier = last;
+            if (copier == null || copier.getSourceClass() != source.getClass()) {
+                copier = (Copier<Object, T>) copier(source.getClass(), clazz);
+                last = copier;
+            }
+            return copier.copy(source, newInstance(clazz));
+        }
+    }
+
+    /**
+     * 基于属性访问器的只读map视图
+     */
+    private static class ObjectView extends AbstractMap<String, Object> {
+        private final Object source;
+        private final Map<String, FieldAccessor> accessors;
+
+        ObjectView(Object source, Map<String, FieldAccessor> accessors) {
+            this.source = source;
+            this.accessors = accessors;
+        }
+
+        @Override
+        public Object get(Object key) {
+            FieldAccessor accessor = accessors.get(key);
+            return accessor == null ? null : accessor.get(source);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new EntryIterator(accessors.values().iterator());
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (FieldAccessor accessor : accessors.values()) {
+                        if (accessor.get(source) != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+
+        private class EntryIterator implements Iterator<Entry<String, Object>> {
+            private final Iterator<FieldAccessor> it;
+            private Entry<String, Object> next;
+
+            EntryIterator(Iterator<FieldAccessor> it) {
+                this.it = it;
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && it.hasNext()) {
+                    FieldAccessor accessor = it.next();
+                    Object o = accessor.get(source);
+                    if (o != null) {
+                        next = new SimpleImmutableEntry<>(accessor.getName(), o);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, Object> entry = next;
+                next = null;
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * 原地转换数组中指定区间的元素
+     */
+    private static class MapTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Object[] array;
+        private final Mapper<?> mapper;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        MapTask(Object[] array, Mapper<?> mapper, int chunk, int from, int to) {
+            this.array = array;
+            this.mapper = mapper;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                for (int i = from; i < to; i++) {
+                    array[i] = mapper.apply(array[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MapTask(array, mapper, chunk, from, mid), new MapTask(array, mapper, chunk, mid, to));
+        }
+    }
+
 }
@@ -0,0 +1,156 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * http请求重试策略
+ * <p>
+ * 重试间隔按指数退避增长并加入随机抖动(full jitter), 避免大量请求同时重试.
+ * 默认仅重试幂等请求(GET/HEAD/OPTIONS/PUT/DELETE/TRACE), 连接建立失败时请求尚未发出, 任何请求均可重试.
+ * 响应携带 Retry-After 时按其等待, 超过 maxRetryAfter 时不再重试
+ *
+ * @author luxmixus
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private long initialDelay = 100;
+    private long maxDelay = 10000;
+    private double multiplier = 2;
+    private long maxRetryAfter = 30000;
+    private boolean retryNonIdempotent;
+    private int[] retryStatus = {429, 502, 503, 504};
+
+    protected RetryPolicy(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 创建重试策略
+     *
+     * @param maxAttempts 最大尝试次数(含首次请求)
+     * @return {@link RetryPolicy}
+     */
+    public static RetryPolicy of(int maxAttempts) {
+        return new RetryPolicy(maxAttempts);
+    }
+
+    /**
+     * 设置退避间隔
+     *
+     * @param initialDelay 首次重试的最大间隔, 毫秒
+     * @param maxDelay     重试间隔上限, 毫秒
+     * @return this
+     */
+    public RetryPolicy backoff(long initialDelay, long maxDelay) {
+        if (initialDelay < 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("require 0 <= initialDelay <= maxDelay");
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        return this;
+    }
+
+    public RetryPolicy multiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must not be less than 1");
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * 允许等待的最长 Retry-After, 超过时直接返回响应而不重试
+     *
+     * @param maxRetryAfter 毫秒
+     * @return this
+     */
+    public RetryPolicy maxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+        return this;
+    }
+
+    /**
+     * 是否重试非幂等请求(如POST), 默认否
+     *
+     * @param retryNonIdempotent 是否重试
+     * @return this
+     */
+    public RetryPolicy retryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+        return this;
+    }
+
+    /**
+     * 需要重试的响应状态码, 默认 429/502/503/504
+     *
+     * @param status 状态码
+     * @return this
+     */
+    public RetryPolicy retryOn(int... status) {
+        this.retryStatus = Arrays.copyOf(status, status.length);
+        return this;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 是否允许发起下一次尝试
+     *
+     * @param method  请求方式
+     * @param attempt 已尝试次数
+     * @param sent    请求是否可能已到达服务端
+     * @return boolean
+     */
+    boolean canRetry(String method, int attempt, boolean sent) {
+        return attempt < maxAttempts && (!sent || retryNonIdempotent || isIdempotent(method));
+    }
+
+    boolean isRetryStatus(int status) {
+        for (int s : retryStatus) {
+            if (s == status) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean acceptsRetryAfter(long retryAfter) {
+        return retryAfter <= maxRetryAfter;
+    }
+
+    /**
+     * 计算第 attempt 次尝试失败后的等待时间
+     *
+     * @param attempt    已尝试次数
+     * @param retryAfter 服务端要求的等待时间, 毫秒, 未指定时为-1
+     * @return 等待时间, 毫秒
+     */
+    long delay(int attempt, long retryAfter) {
+        if (retryAfter >= 0) {
+            return retryAfter;
+        }
+        double bound = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * bound);
+    }
+
+    static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "PUT":
+            case "DELETE":
+            case "TRACE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -4,20 +4,37 @@ import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 树状工具助手
+ * <p>
+ * 以元素集合为参数的方法每次调用都会重新分组或索引全部元素; 对同一批元素重复查询时,
+ * 应通过 {@link #index(Collection)} 构建一次 {@link TreeIndex} 并复用
  *
  * @author luxmixus
  */
 @RequiredArgsConstructor
 public class TreeHelper<T, R> {
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
     private final Function<T, R> idGetter;
     private final Function<T, R> parentIdGetter;
     private final BiConsumer<T, ? super List<T>> childrenSetter;
@@ -36,6 +53,26 @@ public class TreeHelper<T, R> {
         return new TreeHelper<>(idGetter, parentIdGetter, childrenSetter);
     }
 
+    /**
+     * 构建树索引快照, 用于对同一数据集的重复查询
+     *
+     * @param elements 元素
+     * @return {@link TreeIndex } 树索引
+     */
+    public TreeIndex<T, R> index(Collection<? extends T> elements) {
+        return new TreeIndex<>(idGetter, parentIdGetter, childrenSetter, elements);
+    }
+
+    /**
+     * 构建可增量维护的树, 节点变化时无需重新建立关系
+     *
+     * @param elements 元素
+     * @return {@link LiveTree } 可增量维护的树
+     */
+    public LiveTree<T, R> liveTree(Collection<? extends T> elements) {
+        return new LiveTree<>(idGetter, parentIdGetter, childrenSetter, elements);
+    }
+
     /**
      * 建立关系
      *
@@ -44,10 +81,127 @@ public class TreeHelper<T, R> {
      */
     public List<T> buildRelation(Collection<? extends T> elements) {
         ArrayList<T> ts = new ArrayList<>(elements);
-        ts.forEach(e -> childrenSetter.accept(e, findDirectChildrenByNode(ts, e)));
+        assignChildren(ts, groupByParentId(ts, 0, ts.size()), 0, ts.size());
         return ts;
     }
 
+    /**
+     * 并行建立关系, 适用于超大列表
+     * <p>
+     * 分组与子元素设置均在指定线程池中分段执行, 子元素顺序与 {@link #buildRelation(Collection)} 一致,
+     * childrenSetter 会被并发调用(每个元素仅调用一次)
+     *
+     * @param elements 源列表
+     * @param pool     线程池
+     * @return {@link List } 源列表
+     */
+    public List<T> buildRelationParallel(Collection<? extends T> elements, ForkJoinPool pool) {
+        ArrayList<T> ts = new ArrayList<>(elements);
+        // 分段数量约为并行度的两倍, 以减少分组结果的合并次数
+        int chunk = Math.max(PARALLEL_THRESHOLD, ts.size() / (pool.getParallelism() << 1) + 1);
+        if (pool.getParallelism() <= 1 || ts.size() <= chunk) {
+            assignChildren(ts, groupByParentId(ts, 0, ts.size()), 0, ts.size());
+            return ts;
+        }
+        Map<R, List<T>> childrenMap = pool.invoke(new GroupTask(ts, chunk, 0, ts.size()));
+        pool.invoke(new AssignTask(ts, childrenMap, chunk, 0, ts.size()));
+        return ts;
+    }
+
+    /**
+     * 按父id对元素分组, 组内保持源列表顺序
+     *
+     * @param elements 元素
+     * @param from     起始下标(包含)
+     * @param to       结束下标(不包含)
+     * @return 父id与直接子元素列表的映射
+     */
+    private Map<R, List<T>> groupByParentId(List<T> elements, int from, int to) {
+        Map<R, List<T>> childrenMap = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            T e = elements.get(i);
+            childrenMap.computeIfAbsent(parentIdGetter.apply(e), k -> new ArrayList<>()).add(e);
+        }
+        return childrenMap;
+    }
+
+    /**
+     * 为指定下标范围内的元素设置子元素
+     *
+     * @param elements    元素
+     * @param childrenMap 父id与直接子元素列表的映射
+     * @param from        起始下标(包含)
+     * @param to          结束下标(不包含)
+     */
+    private void assignChildren(List<T> elements, Map<R, List<T>> childrenMap, int from, int to) {
+        for (int i = from; i < to; i++) {
+            T e = elements.get(i);
+            List<T> children = childrenMap.get(idGetter.apply(e));
+            childrenSetter.accept(e, children == null ? new ArrayList<>() : children);
+        }
+    }
+
+    /**
+     * 分段分组任务, 合并时左段子元素始终排在右段之前
+     */
+    @RequiredArgsConstructor
+    private class GroupTask extends RecursiveTask<Map<R, List<T>>> {
+        private static final long serialVersionUID = 1L;
+        private final List<T> elements;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        @Override
+        protected Map<R, List<T>> compute() {
+            if (to - from <= chunk) {
+                return groupByParentId(elements, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(elements, chunk, from, middle);
+            left.fork();
+            Map<R, List<T>> right = new GroupTask(elements, chunk, middle, to).compute();
+            Map<R, List<T>> leftMap = left.join();
+            // 遍历较小的映射合并到较大的映射中
+            if (leftMap.size() >= right.size()) {
+                right.forEach((k, v) -> leftMap.merge(k, v, (l, r) -> {
+                    l.addAll(r);
+                    return l;
+                }));
+                return leftMap;
+            }
+            leftMap.forEach((k, v) -> right.merge(k, v, (r, l) -> {
+                l.addAll(r);
+                return l;
+            }));
+            return right;
+        }
+    }
+
+    /**
+     * 分段设置子元素任务
+     */
+    @RequiredArgsConstructor
+    private class AssignTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<T> elements;
+        private final Map<R, List<T>> childrenMap;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                assignChildren(elements, childrenMap, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AssignTask(elements, childrenMap, chunk, from, middle),
+                    new AssignTask(elements, childrenMap, chunk, middle, to));
+        }
+    }
+
     /**
      * 构建根目录树
      *
@@ -119,20 +273,18 @@ public class TreeHelper<T, R> {
      * @return 子元素列表
      */
     public List<T> findAllChildrenById(Collection<? extends T> elements, R id) {
-        ArrayList<T> all = new ArrayList<>(elements);
-        List<T> children = findDirectChildrenById(all, id);
-        if (children == null || children.isEmpty()) {
-            return new ArrayList<>();
-        }
-        ArrayList<T> result = new ArrayList<>(children);
-        for (T child : children) {
-            List<T> allChildren = this.findAllChildrenById(all, idGetter.apply(child));
-            if (allChildren == null || allChildren.isEmpty()) {
-                continue;
-            }
-            result.addAll(allChildren);
-        }
-        return result;
+        return index(elements).findAllChildrenById(id);
+    }
+
+    /**
+     * 以流的形式检索指定id对应的所有子节点, 可提前终止而无需构建完整子树列表
+     *
+     * @param elements 元素
+     * @param id       id
+     * @return 子元素流
+     */
+    public Stream<T> streamAllChildrenById(Collection<? extends T> elements, R id) {
+        return index(elements).streamAllChildrenById(id);
     }
 
     /**
@@ -154,25 +306,18 @@ public class TreeHelper<T, R> {
      * @return 父元素列表
      */
     public List<T> findAllParentById(Collection<? extends T> elements, R id) {
-        T currentNode = elements.stream()
-                .filter(c -> Objects.equals(id, idGetter.apply(c)))
-                .findFirst()
-                .orElse(null);
-        ArrayList<T> parents = new ArrayList<>();
-        if (currentNode == null) {
-            return parents;
-        }
-        R parentId = parentIdGetter.apply(currentNode);
-        while (parentId != null) {
-            for (T element : elements) {
-                if (Objects.equals(parentId, idGetter.apply(element))) {
-                    parents.add(element);
-                    parentId = parentIdGetter.apply(element);
-                    break;
-                }
-            }
-        }
-        return parents;
+        return index(elements).findAllParentById(id);
+    }
+
+    /**
+     * 批量查找多个id节点对应的所有父节点, 各id间共享已解析的父路径
+     *
+     * @param elements 元素
+     * @param ids      id集合
+     * @return id与父元素列表的映射
+     */
+    public Map<R, List<T>> findAllParents(Collection<? extends T> elements, Collection<? extends R> ids) {
+        return index(elements).findAllParents(ids);
     }
 
     /**
@@ -186,4 +331,172 @@ public class TreeHelper<T, R> {
         return findAllParentById(elements, idGetter.apply(node));
     }
 
+    /**
+     * 子树聚合, 一次自底向上遍历计算每个节点所在子树的聚合值
+     * <p>
+     * 节点自身的值先与其各直接子节点的聚合值按子元素顺序依次合并; 父链成环的节点仅保留自身的值
+     *
+     * @param elements     元素
+     * @param valueFn      节点自身的值
+     * @param combiner     合并函数
+     * @param resultSetter 聚合结果setter
+     * @return {@link List } 源列表
+     */
+    @SuppressWarnings("unchecked")
+    public <V> List<T> aggregate(Collection<? extends T> elements,
+                                 Function<? super T, ? extends V> valueFn,
+                                 BinaryOperator<V> combiner,
+                                 BiConsumer<? super T, ? super V> resultSetter) {
+        ArrayList<T> ts = new ArrayList<>(elements);
+        Object[] values = new Object[ts.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = valueFn.apply(ts.get(i));
+        }
+        TreeLayout layout = layout(ts);
+        int[] order = layout.levelOrder();
+        for (int k = order.length - 1; k >= 0; k--) {
+            int p = order[k];
+            V value = (V) values[p];
+            for (int c = layout.childStart[p]; c < layout.childStart[p + 1]; c++) {
+                value = combiner.apply(value, (V) values[layout.children[c]]);
+            }
+            values[p] = value;
+        }
+        for (int i = 0; i < values.length; i++) {
+            resultSetter.accept(ts.get(i), (V) values[i]);
+        }
+        return ts;
+    }
+
+    /**
+     * 子树聚合(long), 避免装箱
+     *
+     * @param elements     元素
+     * @param valueFn      节点自身的值
+     * @param combiner     合并函数
+     * @param resultSetter 聚合结果setter
+     * @return {@link List } 源列表
+     * @see #aggregate(Collection, Function, BinaryOperator, BiConsumer)
+     */
+    public List<T> aggregateLong(Collection<? extends T> elements,
+                                 ToLongFunction<? super T> valueFn,
+                                 LongBinaryOperator combiner,
+                                 ObjLongConsumer<? super T> resultSetter) {
+        ArrayList<T> ts = new ArrayList<>(elements);
+        long[] values = new long[ts.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = valueFn.applyAsLong(ts.get(i));
+        }
+        TreeLayout layout = layout(ts);
+        int[] order = layout.levelOrder();
+        for (int k = order.length - 1; k >= 0; k--) {
+            int p = order[k];
+            long value = values[p];
+            for (int c = layout.childStart[p]; c < layout.childStart[p + 1]; c++) {
+                value = combiner.applyAsLong(value, values[layout.children[c]]);
+            }
+            values[p] = value;
+        }
+        for (int i = 0; i < values.length; i++) {
+            resultSetter.accept(ts.get(i), values[i]);
+        }
+        return ts;
+    }
+
+    /**
+     * 子树聚合(double), 避免装箱
+     *
+     * @param elements     元素
+     * @param valueFn      节点自身的值
+     * @param combiner     合并函数
+     * @param resultSetter 聚合结果setter
+     * @return {@link List } 源列表
+     * @see #aggregate(Collection, Function, BinaryOperator, BiConsumer)
+     */
+    public List<T> aggregateDouble(Collection<? extends T> elements,
+                                   ToDoubleFunction<? super T> valueFn,
+                                   DoubleBinaryOperator combiner,
+                                   ObjDoubleConsumer<? super T> resultSetter) {
+        ArrayList<T> ts = new ArrayList<>(elements);
+        double[] values = new double[ts.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = valueFn.applyAsDouble(ts.get(i));
+        }
+        TreeLayout layout = layout(ts);
+        int[] order = layout.levelOrder();
+        for (int k = order.length - 1; k >= 0; k--) {
+            int p = order[k];
+            double value = values[p];
+            for (int c = layout.childStart[p]; c < layout.childStart[p + 1]; c++) {
+                value = combiner.applyAsDouble(value, values[layout.children[c]]);
+            }
+            values[p] = value;
+        }
+        for (int i = 0; i < values.length; i++) {
+            resultSetter.accept(ts.get(i), values[i]);
+        }
+        return ts;
+    }
+
+    /**
+     * 构建嵌套集合(区间)编码, 用于 O(1) 的祖先/子孙判断
+     *
+     * @param elements 元素
+     * @return {@link NestedSet } 嵌套集合编码
+     */
+    public NestedSet<R> nestedSet(Collection<? extends T> elements) {
+        ArrayList<T> ts = new ArrayList<>(elements);
+        TreeLayout layout = layout(ts);
+        int[] order = layout.levelOrder();
+        int[] sizes = new int[ts.size()];
+        for (int k = order.length - 1; k >= 0; k--) {
+            int p = order[k];
+            sizes[p] = 1;
+            for (int c = layout.childStart[p]; c < layout.childStart[p + 1]; c++) {
+                sizes[p] += sizes[layout.children[c]];
+            }
+        }
+        // 根节点依次占据连续区间, 子节点在父节点区间内按子元素顺序依次排列
+        int[] enters = new int[ts.size()];
+        int next = 0;
+        for (int k = 0; k < order.length; k++) {
+            int p = order[k];
+            if (k < layout.roots) {
+                enters[p] = next;
+                next += sizes[p];
+            }
+            int cursor = enters[p] + 1;
+            for (int c = layout.childStart[p]; c < layout.childStart[p + 1]; c++) {
+                enters[layout.children[c]] = cursor;
+                cursor += sizes[layout.children[c]];
+            }
+        }
+        Object[] ids = new Object[order.length];
+        int[] exits = new int[order.length];
+        for (int p : order) {
+            ids[enters[p]] = idGetter.apply(ts.get(p));
+            exits[enters[p]] = enters[p] + sizes[p] - 1;
+        }
+        return new NestedSet<>(ids, exits);
+    }
+
+    /**
+     * 构建以下标表示的树结构
+     */
+    private TreeLayout layout(List<T> elements) {
+        int n = elements.size();
+        Map<R, Integer> positions = new HashMap<>(Math.max(16, (int) (n / .75f) + 1));
+        int[] canonical = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer first = positions.putIfAbsent(idGetter.apply(elements.get(i)), i);
+            canonical[i] = first == null ? i : first;
+        }
+        int[] parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer p = positions.get(parentIdGetter.apply(elements.get(i)));
+            parents[i] = p == null ? -1 : p;
+        }
+        return new TreeLayout(parents, canonical);
+    }
+
 }
@@ -0,0 +1,408 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 树索引快照
+ * <p>
+ * 由 {@link TreeHelper#index(Collection)} 一次性构建, 构建后不可变, 可按数据版本缓存并重复查询
+ *
+ * @author luxmixus
+ */
+public class TreeIndex<T, R> {
+    private final Function<T, R> idGetter;
+    private final Function<T, R> parentIdGetter;
+    private final BiConsumer<T, ? super List<T>> childrenSetter;
+    private final List<T> elements;
+    private final List<T> roots;
+    private final Map<R, T> nodeMap;
+    private final Map<R, List<T>> childrenMap;
+    private final Map<R, Integer> depthMap;
+    private final Map<R, Integer> sizeMap;
+
+    TreeIndex(Function<T, R> idGetter,
+              Function<T, R> parentIdGetter,
+              BiConsumer<T, ? super List<T>> childrenSetter,
+              Collection<? extends T> elements) {
+        this.idGetter = idGetter;
+        this.parentIdGetter = parentIdGetter;
+        this.childrenSetter = childrenSetter;
+        this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+        int capacity = Math.max(16, (int) (this.elements.size() / .75f) + 1);
+        Map<R, T> nodeMap = new HashMap<>(capacity);
+        Map<R, List<T>> childrenMap = new HashMap<>(capacity);
+        for (T e : this.elements) {
+            nodeMap.putIfAbsent(idGetter.apply(e), e);
+            childrenMap.computeIfAbsent(parentIdGetter.apply(e), k -> new ArrayList<>()).add(e);
+        }
+        childrenMap.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        this.nodeMap = nodeMap;
+        this.childrenMap = childrenMap;
+
+        // 父节点不在索引中的元素视为根节点
+        List<T> roots = new ArrayList<>();
+        for (T e : this.elements) {
+            R parentId = parentIdGetter.apply(e);
+            if (parentId == null || !nodeMap.containsKey(parentId)) {
+                roots.add(e);
+            }
+        }
+        this.roots = Collections.unmodifiableList(roots);
+
+        // 自根节点层序遍历计算深度, 再逆序累加子树大小
+        Map<R, Integer> depthMap = new HashMap<>(capacity);
+        List<R> order = new ArrayList<>(nodeMap.size());
+        for (T root : roots) {
+            R id = idGetter.apply(root);
+            if (nodeMap.get(id) == root && depthMap.putIfAbsent(id, 0) == null) {
+                order.add(id);
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            R id = order.get(i);
+            int depth = depthMap.get(id) + 1;
+            for (T child : childrenMap.getOrDefault(id, Collections.emptyList())) {
+                R childId = idGetter.apply(child);
+                if (nodeMap.get(childId) == child && depthMap.putIfAbsent(childId, depth) == null) {
+                    order.add(childId);
+                }
+            }
+        }
+        Map<R, Integer> sizeMap = new HashMap<>(capacity);
+        for (int i = order.size() - 1; i >= 0; i--) {
+            R id = order.get(i);
+            int size = sizeMap.merge(id, 1, Integer::sum);
+            R parentId = parentIdGetter.apply(nodeMap.get(id));
+            if (depthMap.get(id) > 0) {
+                sizeMap.merge(parentId, size, Integer::sum);
+            }
+        }
+        this.depthMap = depthMap;
+        this.sizeMap = sizeMap;
+    }
+
+    /**
+     * 获取索引中的全部元素
+     *
+     * @return 元素列表(不可修改)
+     */
+    public List<T> getElements() {
+        return elements;
+    }
+
+    /**
+     * 获取根节点(父id为空或父节点不在索引中)
+     *
+     * @return 根节点列表(不可修改)
+     */
+    public List<T> getRoots() {
+        return roots;
+    }
+
+    /**
+     * 是否包含指定id的节点
+     *
+     * @param id id
+     * @return boolean
+     */
+    public boolean containsId(R id) {
+        return nodeMap.containsKey(id);
+    }
+
+    /**
+     * 获取指定id对应节点
+     *
+     * @param id id
+     * @return 节点, 不存在时返回null
+     */
+    public T getNode(R id) {
+        return nodeMap.get(id);
+    }
+
+    /**
+     * 获取节点深度, 根节点深度为0
+     *
+     * @param id id
+     * @return 深度, 节点不存在或无法从根节点到达时返回-1
+     */
+    public int depth(R id) {
+        Integer depth = depthMap.get(id);
+        return depth == null ? -1 : depth;
+    }
+
+    /**
+     * 获取以指定节点为根的子树大小(包含节点自身)
+     *
+     * @param id id
+     * @return 子树大小, 节点不存在或无法从根节点到达时返回0
+     */
+    public int subtreeSize(R id) {
+        Integer size = sizeMap.get(id);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 为全部元素建立关系后筛选根目录元素, 与 {@link TreeHelper#treeRoot} 结果一致, 无需重新分组
+     *
+     * @param filter 根目录元素过滤规则
+     * @return {@link List } 根目录元素
+     */
+    public List<T> treeRoot(Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        for (T e : elements) {
+            childrenSetter.accept(e, new ArrayList<>(findDirectChildrenById(idGetter.apply(e))));
+            if (filter.test(e)) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 构建以指定id节点作为根节点的树, 仅为该节点的子树建立关系
+     *
+     * @param id id
+     * @return 指定id对应节点, 不存在时返回null
+     */
+    public T treeById(R id) {
+        T node = nodeMap.get(id);
+        if (node == null) {
+            return null;
+        }
+        Set<T> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<T> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            T e = stack.pop();
+            if (!visited.add(e)) {
+                continue;
+            }
+            List<T> children = findDirectChildrenById(idGetter.apply(e));
+            childrenSetter.accept(e, new ArrayList<>(children));
+            for (T child : children) {
+                stack.push(child);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 获取指定id节点对应的子集
+     *
+     * @param id id
+     * @return 直接子元素列表(不可修改)
+     */
+    public List<T> findDirectChildrenById(R id) {
+        List<T> children = childrenMap.get(id);
+        return children == null ? Collections.emptyList() : children;
+    }
+
+    /**
+     * 检索指定id对应的所有子节点
+     *
+     * @param id id
+     * @return 子元素列表
+     */
+    public List<T> findAllChildrenById(R id) {
+        ArrayList<T> result = new ArrayList<>();
+        allChildrenIterator(id).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * 获取基于当前索引的树遍历器, 可配合 {@link #getRoots()} 使用, 无需预先建立关系
+     *
+     * @return {@link TreeWalker } 树遍历器
+     */
+    public TreeWalker<T> walker() {
+        return TreeWalker.of(node -> findDirectChildrenById(idGetter.apply(node)));
+    }
+
+    /**
+     * 以流的形式遍历指定id对应的所有子节点, 顺序与 {@link #findAllChildrenById(Object)} 一致, 可提前终止
+     *
+     * @param id id
+     * @return 子元素流
+     */
+    public Stream<T> streamAllChildrenById(R id) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(allChildrenIterator(id), Spliterator.ORDERED), false);
+    }
+
+    /**
+     * 以迭代器的形式遍历指定id对应的所有子节点, 顺序与 {@link #findAllChildrenById(Object)} 一致, 可提前终止
+     *
+     * @param id id
+     * @return 子元素迭代器
+     */
+    public Iterator<T> allChildrenIterator(R id) {
+        return new AllChildrenIterator(id);
+    }
+
+    /**
+     * 基于显式栈的子节点迭代器, 先输出某节点的全部直接子节点, 再依次展开各子节点;
+     * 栈中各层对应的id即当前展开路径, 展开路径上已有的id说明存在环
+     */
+    private class AllChildrenIterator implements Iterator<T> {
+        private final ArrayDeque<List<T>> lists = new ArrayDeque<>();
+        private final List<R> path = new ArrayList<>();
+        private final Set<R> onPath = new HashSet<>();
+        private int[] cursors = new int[16];
+        private List<T> current;
+        private int position;
+
+        AllChildrenIterator(R id) {
+            enter(id);
+        }
+
+        private void enter(R id) {
+            List<T> children = findDirectChildrenById(id);
+            current = children;
+            position = 0;
+            if (children.isEmpty()) {
+                return;
+            }
+            if (!onPath.add(id)) {
+                throw new IllegalStateException("circular reference detected in tree elements");
+            }
+            if (lists.size() == cursors.length) {
+                cursors = Arrays.copyOf(cursors, cursors.length << 1);
+            }
+            cursors[lists.size()] = 0;
+            lists.push(children);
+            path.add(id);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position >= current.size()) {
+                if (lists.isEmpty()) {
+                    return false;
+                }
+                int top = lists.size() - 1;
+                List<T> list = lists.peek();
+                if (cursors[top] < list.size()) {
+                    enter(idGetter.apply(list.get(cursors[top]++)));
+                } else {
+                    lists.pop();
+                    onPath.remove(path.remove(top));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.get(position++);
+        }
+    }
+
+    /**
+     * 查找指定id节点对应的所有父节点
+     * <p>
+     * 父节点不在索引中时视为已到达根节点; 父链成环时抛出 {@link IllegalStateException}
+     *
+     * @param id id
+     * @return 父元素列表, 由近及远
+     */
+    public List<T> findAllParentById(R id) {
+        T current = nodeMap.get(id);
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        int depth = checkedDepth(id);
+        ArrayList<T> parents = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            current = nodeMap.get(parentIdGetter.apply(current));
+            parents.add(current);
+        }
+        return parents;
+    }
+
+    /**
+     * 批量查找多个id节点对应的所有父节点, 各id间共享已解析的父路径
+     *
+     * @param ids id集合
+     * @return id与父元素列表(由近及远, 不可修改)的映射, 顺序与入参一致
+     */
+    public Map<R, List<T>> findAllParents(Collection<? extends R> ids) {
+        Map<R, List<T>> pathCache = new HashMap<>();
+        Map<R, List<T>> result = new LinkedHashMap<>();
+        for (R id : ids) {
+            result.put(id, resolveParents(id, pathCache));
+        }
+        return result;
+    }
+
+    /**
+     * 自下而上解析父路径, 直到命中缓存或到达根节点, 再自上而下回填缓存
+     */
+    private List<T> resolveParents(R id, Map<R, List<T>> pathCache) {
+        T node = nodeMap.get(id);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        checkedDepth(id);
+        List<T> path = new ArrayList<>();
+        List<T> ancestors = Collections.emptyList();
+        T above = null;
+        T current = node;
+        while (current != null) {
+            List<T> cached = pathCache.get(idGetter.apply(current));
+            if (cached != null) {
+                ancestors = cached;
+                above = current;
+                break;
+            }
+            path.add(current);
+            R parentId = parentIdGetter.apply(current);
+            current = parentId == null ? null : nodeMap.get(parentId);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (above != null) {
+                List<T> list = new ArrayList<>(ancestors.size() + 1);
+                list.add(above);
+                list.addAll(ancestors);
+                ancestors = Collections.unmodifiableList(list);
+            }
+            T n = path.get(i);
+            pathCache.put(idGetter.apply(n), ancestors);
+            above = n;
+        }
+        return ancestors;
+    }
+
+    /**
+     * 获取节点深度, 节点存在却无法从根节点到达时, 说明其父链成环
+     */
+    private int checkedDepth(R id) {
+        int depth = depth(id);
+        if (depth < 0) {
+            throw new IllegalStateException("circular parent reference detected, id: " + id);
+        }
+        return depth;
+    }
+
+}
@@ -0,0 +1,171 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * 以下标表示的树结构, 由 {@link TreeHelper} 与 {@link LongTreeHelper} 共用
+ * <p>
+ * 子元素下标按父元素分段连续存放, 第 p 个元素的子元素为 children[childStart[p], childStart[p + 1]);
+ * 父元素下标为-1的元素为根元素. 同一id出现多次时, 子元素挂在该id首个元素下
+ *
+ * @author luxmixus
+ */
+final class TreeLayout {
+    final int size;
+    final int[] parents;
+    final int[] canonical;
+    final int[] childStart;
+    final int[] children;
+    final int roots;
+
+    /**
+     * @param parents   父元素下标(父id首个元素的下标), 父元素不存在时为-1
+     * @param canonical 与该元素id相同的首个元素的下标
+     */
+    TreeLayout(int[] parents, int[] canonical) {
+        this.size = parents.length;
+        this.parents = parents;
+        this.canonical = canonical;
+        this.childStart = new int[size + 1];
+        int roots = 0;
+        for (int i = 0; i < size; i++) {
+            if (parents[i] >= 0) {
+                childStart[parents[i] + 1]++;
+            } else {
+                roots++;
+            }
+        }
+        this.roots = roots;
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        children = new int[childStart[size]];
+        int[] cursors = Arrays.copyOf(childStart, size);
+        for (int i = 0; i < size; i++) {
+            if (parents[i] >= 0) {
+                children[cursors[parents[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * 自根元素开始的层序遍历顺序, 前 {@link #roots} 个为根元素; 父链成环的元素无法从根元素到达, 不在其中
+     *
+     * @return 元素下标
+     */
+    int[] levelOrder() {
+        int[] order = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (parents[i] < 0) {
+                order[count++] = i;
+            }
+        }
+        for (int head = 0; head < count; head++) {
+            int p = order[head];
+            for (int c = childStart[p]; c < childStart[p + 1]; c++) {
+                order[count++] = children[c];
+            }
+        }
+        return count == size ? order : Arrays.copyOf(order, count);
+    }
+
+    /**
+     * 子孙元素迭代器, 先输出某元素的全部直接子元素, 再依次展开各子元素
+     *
+     * @param top  直接子元素下标所在数组
+     * @param from 起始位置(包含)
+     * @param to   结束位置(不包含)
+     * @return 子孙元素下标迭代器
+     */
+    PrimitiveIterator.OfInt descendants(int[] top, int from, int to) {
+        return new DescendantIterator(-1, top, from, to);
+    }
+
+    /**
+     * 指定元素的子孙元素迭代器
+     *
+     * @param p 元素下标
+     * @return 子孙元素下标迭代器
+     */
+    PrimitiveIterator.OfInt descendants(int p) {
+        p = canonical[p];
+        return new DescendantIterator(p, children, childStart[p], childStart[p + 1]);
+    }
+
+    /**
+     * 基于显式栈的子孙元素迭代器, 栈中各层对应的元素即当前展开路径, 展开路径上已有的元素说明存在环
+     */
+    private class DescendantIterator implements PrimitiveIterator.OfInt {
+        private final int[] top;
+        private final boolean[] onPath = new boolean[size];
+        private int[] nodes = new int[16];
+        private int[] cursors = new int[16];
+        private int[] ends = new int[16];
+        private int depth;
+        private int[] current;
+        private int position;
+        private int end;
+
+        DescendantIterator(int root, int[] top, int from, int to) {
+            this.top = top;
+            enter(root, top, from, to);
+        }
+
+        private void enter(int node, int[] array, int from, int to) {
+            current = array;
+            position = from;
+            end = to;
+            if (from == to) {
+                return;
+            }
+            if (node >= 0) {
+                if (onPath[node]) {
+                    throw new IllegalStateException("circular reference detected in tree elements");
+                }
+                onPath[node] = true;
+            }
+            if (depth == cursors.length) {
+                nodes = Arrays.copyOf(nodes, depth << 1);
+                cursors = Arrays.copyOf(cursors, depth << 1);
+                ends = Arrays.copyOf(ends, depth << 1);
+            }
+            nodes[depth] = node;
+            cursors[depth] = from;
+            ends[depth] = to;
+            depth++;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position >= end) {
+                if (depth == 0) {
+                    return false;
+                }
+                int frame = depth - 1;
+                if (cursors[frame] < ends[frame]) {
+                    int[] array = frame == 0 ? top : children;
+                    int p = canonical[array[cursors[frame]++]];
+                    enter(p, children, childStart[p], childStart[p + 1]);
+                } else {
+                    depth--;
+                    if (nodes[depth] >= 0) {
+                        onPath[nodes[depth]] = false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current[position++];
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package io.github.luxmixus.helper.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 树遍历器
+ * <p>
+ * 对已建立关系的树按先序或层序逐个产出节点访问事件(节点, 深度, 路径), 便于将超大树增量写出到文件或网络,
+ * 而无需同时在内存中保留嵌套对象和完整的序列化结果
+ *
+ * @author luxmixus
+ */
+public class TreeWalker<T> {
+    private final Function<? super T, ? extends Collection<? extends T>> childrenGetter;
+
+    protected TreeWalker(Function<? super T, ? extends Collection<? extends T>> childrenGetter) {
+        this.childrenGetter = childrenGetter;
+    }
+
+    /**
+     * 创建树遍历器
+     *
+     * @param childrenGetter 子元素getter
+     * @return {@link TreeWalker } 树遍历器
+     */
+    public static <T> TreeWalker<T> of(Function<? super T, ? extends Collection<? extends T>> childrenGetter) {
+        return new TreeWalker<>(childrenGetter);
+    }
+
+    /**
+     * 先序遍历
+     *
+     * @param roots 根节点
+     * @return 访问事件迭代器
+     */
+    public Iterator<Visit<T>> preOrder(Collection<? extends T> roots) {
+        return new PreOrderIterator(roots);
+    }
+
+    /**
+     * 先序遍历
+     *
+     * @param roots    根节点
+     * @param consumer 访问事件消费者
+     */
+    public void preOrder(Collection<? extends T> roots, Consumer<? super Visit<T>> consumer) {
+        preOrder(roots).forEachRemaining(consumer);
+    }
+
+    /**
+     * 以流的形式先序遍历
+     *
+     * @param roots 根节点
+     * @return 访问事件流
+     */
+    public Stream<Visit<T>> streamPreOrder(Collection<? extends T> roots) {
+        return toStream(preOrder(roots));
+    }
+
+    /**
+     * 层序遍历
+     *
+     * @param roots 根节点
+     * @return 访问事件迭代器
+     */
+    public Iterator<Visit<T>> levelOrder(Collection<? extends T> roots) {
+        return new LevelOrderIterator(roots);
+    }
+
+    /**
+     * 层序遍历
+     *
+     * @param roots    根节点
+     * @param consumer 访问事件消费者
+     */
+    public void levelOrder(Collection<? extends T> roots, Consumer<? super Visit<T>> consumer) {
+        levelOrder(roots).forEachRemaining(consumer);
+    }
+
+    /**
+     * 以流的形式层序遍历
+     *
+     * @param roots 根节点
+     * @return 访问事件流
+     */
+    public Stream<Visit<T>> streamLevelOrder(Collection<? extends T> roots) {
+        return toStream(levelOrder(roots));
+    }
+
+    private Collection<? extends T> childrenOf(T node) {
+        Collection<? extends T> children = childrenGetter.apply(node);
+        return children == null ? Collections.emptyList() : children;
+    }
+
+    private static <T> Stream<Visit<T>> toStream(Iterator<Visit<T>> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 节点访问事件, 通过父事件引用共享路径, 仅在调用 {@link #getPath()} 时才生成路径列表
+     */
+    public static class Visit<T> {
+        private final T node;
+        private final Visit<T> parent;
+        private final int depth;
+
+        Visit(T node, Visit<T> parent) {
+            this.node = node;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        /**
+         * 当前节点
+         */
+        public T getNode() {
+            return node;
+        }
+
+        /**
+         * 父节点访问事件, 根节点为null
+         */
+        public Visit<T> getParent() {
+            return parent;
+        }
+
+        /**
+         * 深度, 根节点为0
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * 自根节点至当前节点的路径
+         *
+         * @return 路径节点列表
+         */
+        public List<T> getPath() {
+            ArrayList<T> path = new ArrayList<>(depth + 1);
+            for (Visit<T> v = this; v != null; v = v.parent) {
+                path.add(v.node);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    private class PreOrderIterator implements Iterator<Visit<T>> {
+        private final ArrayDeque<Iterator<? extends T>> iterators = new ArrayDeque<>();
+        private final ArrayDeque<Visit<T>> parents = new ArrayDeque<>();
+        private Visit<T> parent;
+
+        PreOrderIterator(Collection<? extends T> roots) {
+            iterators.push(roots.iterator());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!iterators.isEmpty() && !iterators.peek().hasNext()) {
+                iterators.pop();
+                parent = parents.poll();
+            }
+            return !iterators.isEmpty();
+        }
+
+        @Override
+        public Visit<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Visit<T> visit = new Visit<>(iterators.peek().next(), parent);
+            Collection<? extends T> children = childrenOf(visit.node);
+            if (!children.isEmpty()) {
+                if (parent != null) {
+                    parents.push(parent);
+                }
+                iterators.push(children.iterator());
+                parent = visit;
+            }
+            return visit;
+        }
+    }
+
+    private class LevelOrderIterator implements Iterator<Visit<T>> {
+        private final ArrayDeque<Visit<T>> queue = new ArrayDeque<>();
+
+        LevelOrderIterator(Collection<? extends T> roots) {
+            for (T root : roots) {
+                queue.add(new Visit<>(root, null));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Visit<T> next() {
+            Visit<T> visit = queue.poll();
+            if (visit == null) {
+                throw new NoSuchElementException();
+            }
+            for (T child : childrenOf(visit.node)) {
+                queue.add(new Visit<>(child, visit));
+            }
+            return visit;
+        }
+    }
+
+}
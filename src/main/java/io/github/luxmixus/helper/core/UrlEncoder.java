@@ -0,0 +1,216 @@
+package io.github.luxmixus.helper.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * url百分号编码
+ * <p>
+ * 按 RFC 3986 编码, 仅保留非保留字符(字母, 数字, -._~); 表单编码按 application/x-www-form-urlencoded 规则,
+ * 空格编码为 +, 保留字母, 数字及 *-._. 安全字符以查表判断, utf-8 直接逐字符编码,
+ * 拼接使用线程内复用的缓冲区, 不产生中间字符串
+ *
+ * @author luxmixus
+ */
+public final class UrlEncoder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] URL_SAFE = new boolean[128];
+    private static final boolean[] FORM_SAFE = new boolean[128];
+    private static final int MAX_CACHED_BUFFER = 8192;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            URL_SAFE[c] = FORM_SAFE[c] = true;
+            URL_SAFE[c - 32] = FORM_SAFE[c - 32] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            URL_SAFE[c] = FORM_SAFE[c] = true;
+        }
+        for (char c : "-._~".toCharArray()) {
+            URL_SAFE[c] = true;
+        }
+        for (char c : "*-._".toCharArray()) {
+            FORM_SAFE[c] = true;
+        }
+    }
+
+    private UrlEncoder() {
+    }
+
+    /**
+     * 按 RFC 3986 编码
+     *
+     * @param value   内容
+     * @param charset 字符集
+     * @return 编码结果
+     */
+    public static String encode(CharSequence value, Charset charset) {
+        StringBuilder sb = buffer();
+        appendEncoded(sb, value, charset, false);
+        return sb.toString();
+    }
+
+    /**
+     * 按表单规则编码
+     *
+     * @param value   内容
+     * @param charset 字符集
+     * @return 编码结果
+     */
+    public static String encodeForm(CharSequence value, Charset charset) {
+        StringBuilder sb = buffer();
+        appendEncoded(sb, value, charset, true);
+        return sb.toString();
+    }
+
+    /**
+     * 编码并追加至 sb
+     *
+     * @param sb      目标
+     * @param value   内容
+     * @param charset 字符集
+     * @param form    是否按表单规则编码
+     */
+    public static void appendEncoded(StringBuilder sb, CharSequence value, Charset charset, boolean form) {
+        boolean[] safe = form ? FORM_SAFE : URL_SAFE;
+        boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c < 128 && safe[c]) {
+                sb.append(c);
+                i++;
+            } else if (c == ' ' && form) {
+                sb.append('+');
+                i++;
+            } else if (c < 128) {
+                appendByte(sb, c);
+                i++;
+            } else if (utf8) {
+                int cp = Character.codePointAt(value, i);
+                i += Character.charCount(cp);
+                appendUtf8(sb, cp);
+            } else {
+                // 其他字符集: 将连续的非ascii字符整体编码
+                int end = i + 1;
+                while (end < length && value.charAt(end) >= 128) {
+                    end++;
+                }
+                ByteBuffer bytes = charset.encode(CharBuffer.wrap(value, i, end));
+                while (bytes.hasRemaining()) {
+                    appendByte(sb, bytes.get() & 0xFF);
+                }
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * 将参数以 k1=v1&amp;k2=v2 的形式编码并追加至 sb, 值为null时只保留键
+     *
+     * @param sb      目标
+     * @param params  参数
+     * @param charset 字符集
+     * @param form    是否按表单规则编码
+     */
+    public static void appendParams(StringBuilder sb, Map<?, ?> params, Charset charset, boolean form) {
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : params.entrySet()) {
+            if (!first) {
+                sb.append('&');
+            }
+            first = false;
+            appendEncoded(sb, String.valueOf(entry.getKey()), charset, form);
+            if (entry.getValue() != null) {
+                sb.append('=');
+                appendEncoded(sb, entry.getValue().toString(), charset, form);
+            }
+        }
+    }
+
+    /**
+     * 编码为 application/x-www-form-urlencoded 请求体
+     *
+     * @param params  参数
+     * @param charset 字符集
+     * @return 请求体字节, 编码结果仅含ascii字符
+     */
+    public static byte[] formBody(Map<?, ?> params, Charset charset) {
+        StringBuilder sb = buffer();
+        appendParams(sb, params, charset, true);
+        byte[] bytes = new byte[sb.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) sb.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * 在地址后拼接路径参数, 已有参数时以 &amp; 连接, 参数插入在片段(#)之前
+     *
+     * @param url     地址
+     * @param params  参数
+     * @param charset 字符集
+     * @return 拼接后的地址
+     */
+    public static String appendQuery(String url, Map<?, ?> params, Charset charset) {
+        if (params == null || params.isEmpty()) {
+            return url;
+        }
+        int hash = url.indexOf('#');
+        int end = hash < 0 ? url.length() : hash;
+        StringBuilder sb = buffer();
+        sb.append(url, 0, end);
+        int question = url.lastIndexOf('?', end - 1);
+        if (question < 0) {
+            sb.append('?');
+        } else if (question != end - 1 && url.charAt(end - 1) != '&') {
+            sb.append('&');
+        }
+        appendParams(sb, params, charset, false);
+        sb.append(url, end, url.length());
+        return sb.toString();
+    }
+
+    /**
+     * 获取当前线程复用的缓冲区, 过大时丢弃以免长期占用内存
+     */
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        if (sb.capacity() > MAX_CACHED_BUFFER) {
+            sb = new StringBuilder(256);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static void appendUtf8(StringBuilder sb, int cp) {
+        if (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+            // 不成对的代理字符无法编码, 与 String.getBytes 一致替换为 ?
+            appendByte(sb, '?');
+        } else if (cp < 0x800) {
+            appendByte(sb, 0xC0 | (cp >> 6));
+            appendByte(sb, 0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            appendByte(sb, 0xE0 | (cp >> 12));
+            appendByte(sb, 0x80 | ((cp >> 6) & 0x3F));
+            appendByte(sb, 0x80 | (cp & 0x3F));
+        } else {
+            appendByte(sb, 0xF0 | (cp >> 18));
+            appendByte(sb, 0x80 | ((cp >> 12) & 0x3F));
+            appendByte(sb, 0x80 | ((cp >> 6) & 0x3F));
+            appendByte(sb, 0x80 | (cp & 0x3F));
+        }
+    }
+
+    private static void appendByte(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+}